@@ -0,0 +1,146 @@
+package mpo.dayon.common.squeeze;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Random;
+
+import mpo.dayon.common.capture.CaptureTile;
+
+/**
+ * The tile caches (regular and off-heap) against an access ordered
+ * LinkedHashMap : same tiles, same sizes and same hits after random adds,
+ * gets, purges and clears (i.e., the compressor and the de-compressor caches
+ * are evicting the same tiles).
+ * <p/>
+ * Some cache ids are only differing in their high bits : same home slot in
+ * the open-addressing table (i.e., backward shift deletions).
+ */
+public class LruTileCacheCheck {
+	private static final int STEPS = 400000;
+
+	/**
+	 * Purging every that many steps (i.e., a capture).
+	 */
+	private static final int CAPTURE_STEPS = 50;
+
+	public static void main(String[] args) {
+		final PrintStream console = System.out;
+
+		// every purge is logged (console) : too many of them
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+		}));
+
+		final int[][] sizes = { { 64, 48 }, { 1000, 800 }, { 7, 3 }, { 1, 0 }, { RegularTileCache.DEFAULT_MAX_SIZE, RegularTileCache.DEFAULT_PURGE_SIZE } };
+
+		for (final int[] size : sizes) {
+			final int regularHits = check(new RegularTileCache(size[0], size[1]), size[0], size[1]);
+			final int slabHits = check(new SlabTileCache(size[0], size[1]), size[0], size[1]);
+
+			if (regularHits != slabHits) {
+				throw new IllegalStateException("Regular vs off-heap hits [" + regularHits + "," + slabHits + "]!");
+			}
+
+			console.println(String.format("LRU tile cache [max:%d][purge:%d][hits:%d] : OK", size[0], size[1], regularHits));
+		}
+	}
+
+	private static int check(TileCache cache, int maxSize, int purgeSize) {
+		final LinkedHashMap<Long, CaptureTile> expected = new LinkedHashMap<>(16, 0.75f, true);
+		final Random random = new Random(maxSize);
+
+		int hits = 0;
+
+		for (int step = 0; step < STEPS; step++) {
+			final long cacheId = createCacheId(random, maxSize);
+
+			if (random.nextBoolean()) {
+				final CaptureTile tile = createTile(random, cacheId);
+
+				cache.add(tile);
+
+				if (expected.containsKey(cacheId) || expected.size() < maxSize) {
+					expected.put(cacheId, tile);
+				}
+			} else {
+				final CaptureTile tile = cache.get(cacheId);
+				final CaptureTile xtile = expected.get(cacheId);
+
+				if (xtile != null) {
+					++hits;
+				}
+
+				if (!isSame(xtile, tile)) {
+					fail(cache, step, "tile [" + cacheId + "]");
+				}
+			}
+
+			if (step % CAPTURE_STEPS == 0) {
+				cache.onCaptureProcessed();
+
+				if (expected.size() > 0 && expected.size() >= maxSize) {
+					final Iterator<Long> lru = expected.keySet().iterator();
+
+					while (expected.size() > purgeSize) {
+						lru.next();
+						lru.remove();
+					}
+				}
+			}
+
+			if (step == STEPS / 2) {
+				cache.clear();
+				expected.clear();
+			}
+
+			if (cache.size() != expected.size()) {
+				fail(cache, step, "size [" + cache.size() + "," + expected.size() + "]");
+			}
+		}
+
+		if (cache.getHits() != hits) {
+			fail(cache, STEPS, "hits [" + cache.getHits() + "," + hits + "]");
+		}
+
+		return hits;
+	}
+
+	private static long createCacheId(Random random, int maxSize) {
+		if (random.nextInt(3) == 0) {
+			return random.nextLong();
+		}
+
+		// a small set of ids (hits) with the same low 32 bits by pairs (!)
+		final int id = random.nextInt(3 * maxSize + 1);
+		return ((long) (id >> 1) << 32) | (id & 1);
+	}
+
+	private static CaptureTile createTile(Random random, long cacheId) {
+		final int width = 1 + random.nextInt(32);
+		final int height = 1 + random.nextInt(32);
+
+		final byte[] data = new byte[width * height];
+		random.nextBytes(data);
+
+		return new CaptureTile(0, 0, cacheId, 0, 0, width, height, data);
+	}
+
+	private static boolean isSame(CaptureTile expected, CaptureTile tile) {
+		if (expected == null) {
+			return tile == CaptureTile.MISSING;
+		}
+
+		return tile != CaptureTile.MISSING && tile.getChecksum() == expected.getChecksum() && tile.getWidth() == expected.getWidth()
+				&& tile.getHeight() == expected.getHeight()
+				&& Arrays.equals(Arrays.copyOf(tile.getCapture().getInternal(), tile.getCapture().size()), expected.getCapture().getInternal());
+	}
+
+	private static void fail(TileCache cache, int step, String what) {
+		throw new IllegalStateException("LRU tile cache mismatch [" + cache.getClass().getSimpleName() + "][step:" + step + "] : " + what + "!");
+	}
+}
@@ -0,0 +1,94 @@
+package mpo.dayon.common.utils;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import mpo.dayon.common.capture.Gray8Bits;
+
+/**
+ * The gray conversion gives the same levels whatever the way it is split : in
+ * parallel bands of rows (capture), sequentially (capture) or tile by tile
+ * (RGB_CHECKSUM mode).
+ */
+public class ScreenUtilitiesCheck {
+	private static final int WHITE = 0xFFFFFFFF;
+
+	public static void main(String[] args) {
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		final Random random = new Random(20);
+
+		final int[][] sizes = { { 1920, 1080 }, { 1366, 768 }, { 2560, 1440 }, { 33, 7 } };
+
+		for (final int[] size : sizes) {
+			final int width = size[0];
+			final int height = size[1];
+
+			for (final Gray8Bits quantization : Gray8Bits.values()) {
+				final int[] rgb = createScreen(random, width, height);
+
+				final byte[] sequential = ScreenUtilities.rgbToGray8(quantization, rgb, width, null, null);
+				final byte[] parallel = ScreenUtilities.rgbToGray8(quantization, rgb, width, pool, null);
+
+				check(Arrays.equals(sequential, parallel), "parallel vs sequential", width, height, quantization);
+
+				for (int y = 0; y < height; y += 32) {
+					for (int x = 0; x < width; x += 32) {
+						final int tw = Math.min(32, width - x);
+						final int th = Math.min(32, height - y);
+
+						final byte[] tile = ScreenUtilities.rgbToGray8(quantization, rgb, width, y * width + x, tw, th);
+
+						for (int row = 0; row < th; row++) {
+							for (int col = 0; col < tw; col++) {
+								if (tile[row * tw + col] != sequential[(y + row) * width + x + col]) {
+									check(false, "tile [" + x + "," + y + "] vs screen", width, height, quantization);
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+
+		final byte[] white = ScreenUtilities.rgbToGray8(Gray8Bits.X_256, new int[] { WHITE, WHITE }, 2, null, null);
+
+		if (white[0] != (byte) 254 || white[1] != (byte) 254) {
+			throw new IllegalStateException("Opaque white is not 254 [" + (white[0] & 0xFF) + "," + (white[1] & 0xFF) + "]!");
+		}
+
+		pool.shutdown();
+
+		System.out.println("Gray conversion : OK");
+	}
+
+	/**
+	 * Mostly runs of white (every band and every tile row might start with a
+	 * white pixel) with some random pixels.
+	 */
+	private static int[] createScreen(Random random, int width, int height) {
+		final int[] rgb = new int[width * height];
+
+		int idx = 0;
+
+		while (idx < rgb.length) {
+			final int pixel = random.nextInt(4) == 0 ? 0xFF000000 | random.nextInt() : WHITE;
+			final int end = Math.min(rgb.length, idx + 1 + random.nextInt(64));
+
+			Arrays.fill(rgb, idx, end, pixel);
+			idx = end;
+		}
+
+		for (int y = 0; y < height; y++) {
+			rgb[y * width] = WHITE;
+		}
+
+		return rgb;
+	}
+
+	private static void check(boolean ok, String what, int width, int height, Gray8Bits quantization) {
+		if (!ok) {
+			throw new IllegalStateException("Gray conversion mismatch : " + what + " [" + width + "x" + height + "][" + quantization + "]!");
+		}
+	}
+}
@@ -1,7 +1,9 @@
 package mpo.dayon.assistant.decompressor;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
@@ -12,6 +14,7 @@ import org.jetbrains.annotations.Nullable;
 
 import mpo.dayon.assisted.compressor.CompressorEngineConfiguration;
 import mpo.dayon.common.capture.Capture;
+import mpo.dayon.common.capture.CaptureStage;
 import mpo.dayon.common.concurrent.DefaultThreadFactoryEx;
 import mpo.dayon.common.concurrent.Executable;
 import mpo.dayon.common.configuration.Configurable;
@@ -20,20 +23,49 @@ import mpo.dayon.common.event.Listeners;
 import mpo.dayon.common.log.Log;
 import mpo.dayon.common.network.message.NetworkCaptureMessage;
 import mpo.dayon.common.network.message.NetworkCaptureMessageHandler;
+import mpo.dayon.common.squeeze.CompressionMethod;
 import mpo.dayon.common.squeeze.Compressor;
+import mpo.dayon.common.squeeze.Framebuffer;
 import mpo.dayon.common.squeeze.NullTileCache;
+import mpo.dayon.common.squeeze.PersistentTileCache;
 import mpo.dayon.common.squeeze.RegularTileCache;
+import mpo.dayon.common.squeeze.SlabTileCache;
 import mpo.dayon.common.squeeze.TileCache;
+import mpo.dayon.common.utils.SystemUtilities;
 
 public class DeCompressorEngine implements Configurable<DeCompressorEngineConfiguration>, NetworkCaptureMessageHandler {
+	/**
+	 * The pixels of the cached tiles are kept off-heap (no GC cost for a large
+	 * cache).
+	 */
+	private static final boolean OFF_HEAP_CACHE = SystemUtilities.getBooleanProperty(null, "dayon.cache.offHeap", true);
+
 	private final Listeners<DeCompressorEngineListener> listeners = new Listeners<>(DeCompressorEngineListener.class);
 
 	private ThreadPoolExecutor executor;
 
+	/**
+	 * The chunks of a capture de-compressed in parallel (null : single
+	 * processor).
+	 */
+	private ForkJoinPool pool;
+
 	private Semaphore semaphore;
 
 	private TileCache cache;
 
+	/**
+	 * Same content as the one of the compressor (null : no delta).
+	 */
+	@Nullable
+	private Framebuffer framebuffer;
+
+	/**
+	 * Per compression method : kept until the next re-configuration (stateful
+	 * de-compressor).
+	 */
+	private final Compressor[] compressors = new Compressor[CompressionMethod.values().length];
+
 	public DeCompressorEngine() {
 	}
 
@@ -61,6 +93,14 @@ public class DeCompressorEngine implements Configurable<DeCompressorEngineConfig
 
 		executor.setThreadFactory(new DefaultThreadFactoryEx("DeCompressorEngine"));
 
+		final int parallelism = Runtime.getRuntime().availableProcessors();
+
+		if (parallelism > 1) {
+			pool = new ForkJoinPool(parallelism);
+		}
+
+		Log.info("De-compressor engine parallelism [" + parallelism + "]");
+
 		// Rejection Policy
 		//
 		// Blocking pattern when queue full; that means we're not decompressing
@@ -98,6 +138,14 @@ public class DeCompressorEngine implements Configurable<DeCompressorEngineConfig
 		}
 	}
 
+	/**
+	 * Same LRU semantics whatever the storage (in sync with the compressor
+	 * cache); backed by the tile store if any.
+	 */
+	private static TileCache createTileCache(int maxSize, int purgeSize) {
+		return PersistentTileCache.create(OFF_HEAP_CACHE ? new SlabTileCache(maxSize, purgeSize) : new RegularTileCache(maxSize, purgeSize), true);
+	}
+
 	private void fireOnDeCompressed(Capture capture, int cacheHits, double compressionRatio) {
 		final List<DeCompressorEngineListener> xlisteners = listeners.getListeners();
 
@@ -121,20 +169,38 @@ public class DeCompressorEngine implements Configurable<DeCompressorEngineConfig
 
 		protected void execute() throws Exception {
 			try {
-				final Compressor compressor = Compressor.get(message.getCompressionMethod());
-
 				@Nullable
 				final CompressorEngineConfiguration configuration = message.getCompressionConfiguration();
 				if (configuration != null) {
-					cache = configuration.useCache() ? new RegularTileCache(configuration.getCacheMaxSize(), configuration.getCachePurgeSize())
+					cache = configuration.useCache() ? createTileCache(configuration.getCacheMaxSize(), configuration.getCachePurgeSize())
 							: new NullTileCache();
 
+					framebuffer = configuration.useDelta() ? new Framebuffer() : null;
+
+					for (final Compressor compressor : compressors) {
+						if (compressor != null) {
+							compressor.release(); // the Deflater/Inflater (!)
+						}
+					}
+					Arrays.fill(compressors, null);
+
 					Log.info("De-Compressor engine has been reconfigured [tile:" + message.getId() + "] " + configuration);
 				}
 
+				final CompressionMethod method = message.getCompressionMethod(); // chosen per capture if AUTO (!)
+
+				if (compressors[method.ordinal()] == null) {
+					compressors[method.ordinal()] = Compressor.get(method);
+				}
+
+				final Compressor compressor = compressors[method.ordinal()];
+
 				cache.clearHits();
 
-				final Capture capture = compressor.decompress(cache, message.getPayload());
+				final Capture capture = compressor.decompress(cache, framebuffer, message.getPayload(), pool);
+
+				System.arraycopy(message.getTimestamps(), 0, capture.getTimestamps(), 0, message.getTimestamps().length);
+				capture.stamp(CaptureStage.DECOMPRESS);
 				final double ratio = capture
 						.computeCompressionRatio(1/* magic-number */ + message.getWireSize());
 
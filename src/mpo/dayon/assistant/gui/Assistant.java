@@ -45,7 +45,11 @@ import mpo.dayon.assistant.decompressor.DeCompressorEngineConfiguration;
 import mpo.dayon.assistant.decompressor.DeCompressorEngineListener;
 import mpo.dayon.assistant.monitoring.counter.BitCounter;
 import mpo.dayon.assistant.monitoring.counter.CaptureCompressionCounter;
+import mpo.dayon.assistant.monitoring.counter.Counter;
+import mpo.dayon.assistant.monitoring.counter.CounterListener;
+import mpo.dayon.assistant.monitoring.counter.LatencyCounter;
 import mpo.dayon.assistant.monitoring.counter.MergedTileCounter;
+import mpo.dayon.assistant.monitoring.counter.SkippedRowCounter;
 import mpo.dayon.assistant.monitoring.counter.SkippedTileCounter;
 import mpo.dayon.assistant.monitoring.counter.TileCounter;
 import mpo.dayon.assistant.network.NetworkAssistantConfiguration;
@@ -57,6 +61,7 @@ import mpo.dayon.assisted.capture.CaptureEngineConfiguration;
 import mpo.dayon.assisted.compressor.CompressorEngineConfiguration;
 import mpo.dayon.common.babylon.Babylon;
 import mpo.dayon.common.capture.Capture;
+import mpo.dayon.common.capture.CaptureStage;
 import mpo.dayon.common.capture.Gray8Bits;
 import mpo.dayon.common.configuration.Configurable;
 import mpo.dayon.common.error.FatalErrorHandler;
@@ -82,8 +87,20 @@ public class Assistant implements Configurable<AssistantConfiguration> {
 
 	private final MergedTileCounter mergedTileCounter;
 
+	private final SkippedRowCounter skippedRowCounter;
+
 	private final CaptureCompressionCounter captureCompressionCounter;
 
+	/**
+	 * End-to-end : from the assisted grabbing the screen until painted.
+	 */
+	private final LatencyCounter captureLatencyCounter;
+
+	/**
+	 * Per capture stage : from the previous stage to that one (not shown).
+	 */
+	private final LatencyCounter[] stageLatencyCounters = new LatencyCounter[CaptureStage.values().length];
+
 	private AssistantFrame frame;
 
 	private AssistantConfiguration configuration;
@@ -115,9 +132,33 @@ public class Assistant implements Configurable<AssistantConfiguration> {
 		mergedTileCounter = new MergedTileCounter("mergedTiles", Babylon.translate("mergedCaptureNumber"));
 		mergedTileCounter.start(1000);
 
+		skippedRowCounter = new SkippedRowCounter("skippedRows", Babylon.translate("skippedRowNumber"));
+		skippedRowCounter.start(1000);
+
 		captureCompressionCounter = new CaptureCompressionCounter("captureCompression", Babylon.translate("captureCompression"));
 		captureCompressionCounter.start(1000);
 
+		captureLatencyCounter = new LatencyCounter("captureLatency", Babylon.translate("captureLatency"));
+		captureLatencyCounter.start(1000);
+
+		for (final CaptureStage stage : CaptureStage.values()) {
+			if (stage.ordinal() > 0) {
+				final LatencyCounter counter = new LatencyCounter("captureLatency." + stage, Babylon.translate("captureStageLatency", stage));
+
+				if (Log.isDebugEnabled()) {
+					counter.addListener(new CounterListener<Double>() {
+						public void onInstantValueUpdated(Counter<?> counter, Double value) {
+							Log.debug("Latency [" + counter.getUid() + "] " + ((LatencyCounter) counter).formatInstantValue(value));
+						}
+					});
+				}
+
+				counter.start(1000);
+
+				stageLatencyCounters[stage.ordinal()] = counter;
+			}
+		}
+
 		DeCompressorEngine decompressor = new DeCompressorEngine();
 
 		decompressor.configure(new DeCompressorEngineConfiguration());
@@ -154,7 +195,7 @@ public class Assistant implements Configurable<AssistantConfiguration> {
 		frame = new AssistantFrame(new AssistantFrameConfiguration(), createWhatIsMyIpAction(), createNetworkAssistantConfigurationAction(),
 				createCaptureConfigurationAction(), createComressionConfigurationAction(), createResetAction(), createSwitchLookAndFeelAction(),
 				new AssistantStartAction(network), new AssistantStopAction(network), receivedBitCounter, captureCompressionCounter, receivedTileCounter,
-				skippedTileCounter, mergedTileCounter);
+				skippedTileCounter, mergedTileCounter, skippedRowCounter, captureLatencyCounter);
 
 		FatalErrorHandler.attachFrame(frame);
 
@@ -392,7 +433,13 @@ public class Assistant implements Configurable<AssistantConfiguration> {
 
 				if (ok) {
 					final CaptureEngineConfiguration configuration = new CaptureEngineConfiguration(Integer.parseInt(tickTextField.getText()),
-							(Gray8Bits) grayLevelsCb.getSelectedItem());
+							(Gray8Bits) grayLevelsCb.getSelectedItem(), captureEngineConfiguation.getCaptureParallelism(),
+							captureEngineConfiguation.getCaptureDiff(), captureEngineConfiguation.getCaptureTileWidth(),
+							captureEngineConfiguation.getCaptureTileHeight(), captureEngineConfiguation.isCaptureTileAdaptive(),
+							captureEngineConfiguation.isCapturePipelined(), captureEngineConfiguation.getCaptureMinTick(),
+							captureEngineConfiguation.getCaptureIdleFrameCount(), captureEngineConfiguation.getCaptureBurstWindow(),
+							captureEngineConfiguation.isCaptureShiftDetection(), captureEngineConfiguation.getCaptureVideoThreshold(),
+							captureEngineConfiguation.getCaptureVideoRefresh(), captureEngineConfiguation.getCaptureVideoQuantization());
 
 					if (!configuration.equals(captureEngineConfiguation)) {
 						captureEngineConfiguation = configuration;
@@ -426,7 +473,7 @@ public class Assistant implements Configurable<AssistantConfiguration> {
 				JFrame frame = (JFrame) SwingUtilities.getRoot((Component) ev.getSource());
 
 				final JPanel pane = new JPanel();
-				pane.setLayout(new GridLayout(4, 2, 10, 10));
+				pane.setLayout(new GridLayout(5, 2, 10, 10));
 
 				final JLabel methodLbl = new JLabel(Babylon.translate("compression.method"));
 				final JComboBox<CompressionMethod> methodCb = new JComboBox<>(CompressionMethod.values());
@@ -456,6 +503,14 @@ public class Assistant implements Configurable<AssistantConfiguration> {
 				pane.add(purgeSizeLbl);
 				pane.add(purgeSizeTf);
 
+				final JLabel useDeltaLbl = new JLabel(Babylon.translate("compression.delta"));
+				useDeltaLbl.setToolTipText(Babylon.translate("compression.delta.tooltip"));
+				final JCheckBox useDeltaCb = new JCheckBox();
+				useDeltaCb.setSelected(compressorEngineConfiguation.useDelta());
+
+				pane.add(useDeltaLbl);
+				pane.add(useDeltaCb);
+
 				useCacheCb.addActionListener(ev1 -> {
                     maxSizeLbl.setEnabled(useCacheCb.isSelected());
                     maxSizeTf.setEnabled(useCacheCb.isSelected());
@@ -512,7 +567,8 @@ public class Assistant implements Configurable<AssistantConfiguration> {
 
 				if (ok) {
 					final CompressorEngineConfiguration configuration = new CompressorEngineConfiguration((CompressionMethod) methodCb.getSelectedItem(),
-							useCacheCb.isSelected(), Integer.parseInt(maxSizeTf.getText()), Integer.parseInt(purgeSizeTf.getText()));
+							useCacheCb.isSelected(), Integer.parseInt(maxSizeTf.getText()), Integer.parseInt(purgeSizeTf.getText()),
+							useDeltaCb.isSelected());
 
 					if (!configuration.equals(compressorEngineConfiguation)) {
 						compressorEngineConfiguation = configuration;
@@ -625,16 +681,46 @@ public class Assistant implements Configurable<AssistantConfiguration> {
 				prevHeight = image.fst.getHeight();
 			}
 
-			frame.onCaptureUpdated(capture.getId(), image.fst);
+			frame.onCaptureUpdated(capture.getId(), image.fst, () -> onCapturePainted(capture));
+
+			if (Log.isDebugEnabled()) {
+				frame.onVideoRegionsUpdated(capture.getVideoRegions());
+			}
 
 			receivedTileCounter.add(capture.getDirtyTileCount(), cacheHits);
 			skippedTileCounter.add(capture.getSkipped());
 			mergedTileCounter.add(capture.getMerged());
+			skippedRowCounter.add(capture.getSkippedRows());
 
 			captureCompressionCounter.add(capture.getDirtyTileCount(), compressionRatio);
 		}
 	}
 
+	/**
+	 * EDT : the latency counters (all the timestamps are using the assistant
+	 * clock).
+	 */
+	private void onCapturePainted(Capture capture) {
+		capture.stamp(CaptureStage.PAINT);
+
+		final CaptureStage[] stages = CaptureStage.values();
+
+		for (int idx = 1; idx < stages.length; idx++) {
+			final long from = capture.getTimestamp(stages[idx - 1]);
+			final long to = capture.getTimestamp(stages[idx]);
+
+			if (from > 0 && to > 0) {
+				stageLatencyCounters[idx].add(to - from);
+			}
+		}
+
+		final long grab = capture.getTimestamp(CaptureStage.GRAB);
+
+		if (grab > 0) {
+			captureLatencyCounter.add(capture.getTimestamp(CaptureStage.PAINT) - grab);
+		}
+	}
+
 	private class MyNetworkAssistantEngineListener implements NetworkAssistantEngineListener {
 		public void onReady() {
 			frame.onReady();
@@ -2,6 +2,7 @@ package mpo.dayon.assistant.gui;
 
 import java.awt.BorderLayout;
 import java.awt.Graphics;
+import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
@@ -375,8 +376,19 @@ public class AssistantFrame extends BaseFrame {
 		}
 	}
 
-	public void onCaptureUpdated(final int captureId, final BufferedImage captureImage) {
-		assistantPanel.onCaptureUpdated(captureId, captureImage);
+	/**
+	 * @param painted
+	 *            called (EDT) once the capture has been painted
+	 */
+	public void onCaptureUpdated(final int captureId, final BufferedImage captureImage, @Nullable final Runnable painted) {
+		assistantPanel.onCaptureUpdated(captureId, captureImage, painted);
+	}
+
+	/**
+	 * Debugging purpose (overlay).
+	 */
+	public void onVideoRegionsUpdated(Rectangle[] videoRegions) {
+		assistantPanel.onVideoRegionsUpdated(videoRegions);
 	}
 
 	/**
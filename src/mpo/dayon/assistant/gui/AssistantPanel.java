@@ -1,8 +1,10 @@
 package mpo.dayon.assistant.gui;
 
+import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Image;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 
 import javax.swing.JPanel;
@@ -11,6 +13,7 @@ import javax.swing.SwingUtilities;
 import org.jetbrains.annotations.Nullable;
 
 import mpo.dayon.assistant.resource.ImageNames;
+import mpo.dayon.common.capture.Capture;
 import mpo.dayon.common.gui.common.ImageUtilities;
 
 public class AssistantPanel extends JPanel {
@@ -28,6 +31,17 @@ public class AssistantPanel extends JPanel {
 
 	private int captureHeight = -1;
 
+	/**
+	 * Called once the capture image has been painted (latency).
+	 */
+	@Nullable
+	private Runnable painted;
+
+	/**
+	 * Debugging purpose : the video regions of the last capture.
+	 */
+	private Rectangle[] videoRegions = Capture.NO_VIDEO_REGION;
+
 	private int mouseX = -1;
 
 	private int mouseY = -1;
@@ -42,6 +56,15 @@ public class AssistantPanel extends JPanel {
 
 		if (captureImage != null) {
 			g.drawImage(captureImage, 0, 0, this);
+
+			if (painted != null) {
+				painted.run();
+				painted = null;
+			}
+		}
+
+		if (videoRegions.length > 0) {
+			paintVideoRegions(g);
 		}
 
 		if (mouseX > -1 && mouseY > -1) {
@@ -49,6 +72,14 @@ public class AssistantPanel extends JPanel {
 		}
 	}
 
+	private void paintVideoRegions(Graphics g) {
+		g.setColor(Color.RED);
+
+		for (final Rectangle region : videoRegions) {
+			g.drawRect(region.x, region.y, region.width - 1, region.height - 1);
+		}
+	}
+
 	private void paintMouse(Graphics g) {
 		if (mouseX > -1 && mouseY > -1) {
 			g.drawImage(MOUSE_CURSOR, mouseX, mouseY, this);
@@ -58,7 +89,7 @@ public class AssistantPanel extends JPanel {
 	/**
 	 * Called from within the de-compressor engine thread (!)
 	 */
-	public void onCaptureUpdated(final int captureId, final BufferedImage captureImage) {
+	public void onCaptureUpdated(final int captureId, final BufferedImage captureImage, @Nullable final Runnable painted) {
 		SwingUtilities.invokeLater(() -> {
             final int captureWidth = captureImage.getWidth();
             final int captureHeight = captureImage.getHeight();
@@ -76,11 +107,24 @@ public class AssistantPanel extends JPanel {
             }
 
             AssistantPanel.this.captureImage = captureImage;
+            AssistantPanel.this.painted = painted;
 
             repaint();
         });
 	}
 
+	/**
+	 * Called from within the de-compressor engine thread (!)
+	 */
+	public void onVideoRegionsUpdated(final Rectangle[] videoRegions) {
+		SwingUtilities.invokeLater(() -> {
+			if (AssistantPanel.this.videoRegions.length > 0 || videoRegions.length > 0) {
+				AssistantPanel.this.videoRegions = videoRegions;
+				repaint();
+			}
+		});
+	}
+
 	public void onMouseLocationUpdated(final int x, final int y) {
 		SwingUtilities.invokeLater(() -> {
             if (AssistantPanel.this.mouseX != -1 && AssistantPanel.this.mouseY != -1) {
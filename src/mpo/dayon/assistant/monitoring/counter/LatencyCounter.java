@@ -0,0 +1,25 @@
+package mpo.dayon.assistant.monitoring.counter;
+
+/**
+ * The average capture latency (millis) : either end-to-end (from the assisted
+ * grabbing the screen until the assistant painting it) or of a single stage
+ * of the capture pipeline.
+ *
+ * @see mpo.dayon.common.capture.CaptureStage
+ */
+public class LatencyCounter extends AverageValueCounter {
+	public LatencyCounter(String uid, String shortDescription) {
+		super(uid, shortDescription);
+	}
+
+	public String formatInstantValue(Double value) {
+		if (value == null || Double.isNaN(value)) {
+			return "- ms";
+		}
+		return String.format("%.0f ms", value);
+	}
+
+	public int getWidth() {
+		return 60;
+	}
+}
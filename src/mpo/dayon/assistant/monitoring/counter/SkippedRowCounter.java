@@ -0,0 +1,16 @@
+package mpo.dayon.assistant.monitoring.counter;
+
+/**
+ * The rows of the assisted screen skipped by the scanline prefilter of the
+ * capture engine (i.e., not changed).
+ */
+public class SkippedRowCounter extends AbsoluteValueCounter {
+	public SkippedRowCounter(String uid, String shortDescription) {
+		super(uid, shortDescription);
+	}
+
+	@Override
+	public int getWidth() {
+		return 60;
+	}
+}
@@ -27,6 +27,7 @@ import mpo.dayon.assistant.network.https.NetworkAssistantHttpsEngine;
 import mpo.dayon.assistant.network.https.NetworkAssistantHttpsResources;
 import mpo.dayon.assisted.capture.CaptureEngineConfiguration;
 import mpo.dayon.assisted.compressor.CompressorEngineConfiguration;
+import mpo.dayon.common.capture.CaptureStage;
 import mpo.dayon.common.concurrent.RunnableEx;
 import mpo.dayon.common.configuration.ReConfigurable;
 import mpo.dayon.common.event.Listeners;
@@ -35,6 +36,7 @@ import mpo.dayon.common.network.NetworkEngine;
 import mpo.dayon.common.network.NetworkSender;
 import mpo.dayon.common.network.message.NetworkCaptureMessage;
 import mpo.dayon.common.network.message.NetworkCaptureMessageHandler;
+import mpo.dayon.common.network.message.NetworkClockMessage;
 import mpo.dayon.common.network.message.NetworkHelloMessage;
 import mpo.dayon.common.network.message.NetworkKeyControlMessage;
 import mpo.dayon.common.network.message.NetworkMessage;
@@ -42,10 +44,16 @@ import mpo.dayon.common.network.message.NetworkMessageType;
 import mpo.dayon.common.network.message.NetworkMouseControlMessage;
 import mpo.dayon.common.network.message.NetworkMouseLocationMessage;
 import mpo.dayon.common.network.message.NetworkMouseLocationMessageHandler;
+import mpo.dayon.common.squeeze.PersistentTileStore;
 import mpo.dayon.common.utils.SystemUtilities;
 import mpo.dayon.common.version.Version;
 
 public class NetworkAssistantEngine extends NetworkEngine implements ReConfigurable<NetworkAssistantConfiguration> {
+	/**
+	 * Clock round trips once connected : the one with the smallest network
+	 * delay gives the clock offset (capture latency).
+	 */
+	private static final int CLOCK_SAMPLES = 5;
 	
 	private final NetworkCaptureMessageHandler captureMessageHandler;
 
@@ -194,6 +202,12 @@ public class NetworkAssistantEngine extends NetworkEngine implements ReConfigura
 
 			boolean introduced = false;
 
+			// assistant clock - assisted clock : estimated from the clock
+			// round trip with the smallest network delay
+			long clockOffset = 0;
+			long clockDelay = Long.MAX_VALUE;
+			int clockSamples = 0;
+
 			while (true) {
 				NetworkMessage.unmarshallMagicNumber(in); // blocking read (!)
 
@@ -220,6 +234,18 @@ public class NetworkAssistantEngine extends NetworkEngine implements ReConfigura
 							throw new IOException("Version Error!");
 						}
 	
+						// one-way (i.e., including the network delay) : until the
+						// first clock round trip
+						clockOffset = System.currentTimeMillis() - hello.getTimestamp();
+
+						// always answering (even nothing shared) : the assisted
+						// must not keep the tiles shared by a previous assistant
+						final PersistentTileStore store = PersistentTileStore.get(true);
+						final long[] shared = store == null ? new long[0] : store.share(hello.getSummary()); // loaded before telling the assisted (!)
+
+						sender.sendTileStore(shared);
+						sender.sendClockRequest();
+
 						introduced = true;
 						fireOnConnected(connection);
 						break;
@@ -231,10 +257,38 @@ public class NetworkAssistantEngine extends NetworkEngine implements ReConfigura
 	
 						final NetworkCaptureMessage capture = NetworkCaptureMessage.unmarshall(in);
 						fireOnByteReceived(1 + capture.getWireSize()); // +1 : magic number (byte)
+
+						final long received = System.currentTimeMillis();
+
+						capture.toLocalClock(clockOffset);
+						capture.stamp(CaptureStage.RECEIVE, received);
 	
 						captureMessageHandler.handleCapture(capture);
 						break;
 	
+					case CLOCK:
+						if (!introduced) {
+							throw new IOException("Unexpected message [CLOCK]!");
+						}
+
+						final NetworkClockMessage clock = NetworkClockMessage.unmarshall(in);
+						fireOnByteReceived(1 + clock.getWireSize()); // +1 : magic number (byte)
+
+						final long replied = System.currentTimeMillis();
+						final long delay = clock.getRoundTripDelay(replied);
+
+						if (delay < clockDelay) {
+							clockDelay = delay;
+							clockOffset = clock.getClockOffset(replied);
+						}
+
+						if (++clockSamples < CLOCK_SAMPLES) {
+							sender.sendClockRequest();
+						} else {
+							Log.info(String.format("Clock offset [%dms] [round trip:%dms]", clockOffset, clockDelay));
+						}
+						break;
+
 					case MOUSE_LOCATION:
 						if (!introduced) {
 							throw new IOException("Unexpected message [CAPTURE]!");
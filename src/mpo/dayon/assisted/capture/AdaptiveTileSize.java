@@ -0,0 +1,149 @@
+package mpo.dayon.assisted.capture;
+
+import org.jetbrains.annotations.Nullable;
+
+import mpo.dayon.common.capture.CaptureTile;
+import mpo.dayon.common.log.Log;
+
+/**
+ * Adaptive (square) tile geometry : larger tiles when the screen is mostly
+ * static (less per-tile overhead), smaller tiles when the changes are
+ * scattered (less pixels sent around each change; e.g., typing some text).
+ * <p/>
+ * The decision is taken once per window of captures and then applied by the
+ * capture engine along with a capture having some dirty tiles (i.e., never on
+ * an idle screen).
+ */
+class AdaptiveTileSize {
+	private static final int[] SIZES = { 16, 32, 64 };
+
+	/**
+	 * Number of captures (with or without dirty tiles) before deciding.
+	 */
+	private static final int WINDOW = 64;
+
+	/**
+	 * Below that ratio of dirty tiles the screen is considered as mostly
+	 * static.
+	 */
+	private static final double STATIC_RATIO = 0.005;
+
+	/**
+	 * Above that ratio of isolated dirty tiles (i.e., no dirty neighbour) the
+	 * changes are considered as scattered ...
+	 */
+	private static final double SCATTERED_RATIO = 0.6;
+
+	/**
+	 * ... provided there are at least that many isolated tiles per capture.
+	 */
+	private static final double SCATTERED_MIN_COUNT = 4.0;
+
+	private int index;
+
+	/**
+	 * The decided size (same as index : no change pending).
+	 */
+	private int nextIndex;
+
+	private int captures;
+
+	private long tiles;
+
+	private long dirtyTiles;
+
+	private long isolatedTiles;
+
+	AdaptiveTileSize(int initialSize) {
+		index = 0;
+
+		for (int idx = 1; idx < SIZES.length; idx++) {
+			if (Math.abs(SIZES[idx] - initialSize) < Math.abs(SIZES[index] - initialSize)) {
+				index = idx;
+			}
+		}
+
+		nextIndex = index;
+	}
+
+	int getTileSize() {
+		return SIZES[index];
+	}
+
+	/**
+	 * A decision not applied yet by the capture engine.
+	 */
+	boolean isChangePending() {
+		return nextIndex != index;
+	}
+
+	/**
+	 * @return the new tile size
+	 */
+	int applyChange() {
+		index = nextIndex;
+		return SIZES[index];
+	}
+
+	void onCaptured(@Nullable CaptureTile[] dirty, int tileCount, int tilesPerRow) {
+		++captures;
+		tiles += tileCount;
+
+		if (dirty != null) {
+			for (int idx = 0; idx < tileCount; idx++) {
+				if (dirty[idx] != null) {
+					++dirtyTiles;
+
+					if (isIsolated(dirty, tileCount, tilesPerRow, idx)) {
+						++isolatedTiles;
+					}
+				}
+			}
+		}
+
+		if (captures < WINDOW) {
+			return;
+		}
+
+		final double dirtyRatio = dirtyTiles / (double) tiles;
+		final double isolatedRatio = dirtyTiles == 0 ? 0.0 : isolatedTiles / (double) dirtyTiles;
+		final double isolatedPerCapture = isolatedTiles / (double) captures;
+
+		final int xindex;
+
+		if (isolatedRatio >= SCATTERED_RATIO && isolatedPerCapture >= SCATTERED_MIN_COUNT) {
+			xindex = Math.max(0, index - 1);
+		} else if (dirtyRatio <= STATIC_RATIO) {
+			xindex = Math.min(SIZES.length - 1, index + 1);
+		} else {
+			xindex = index;
+		}
+
+		captures = 0;
+		tiles = 0;
+		dirtyTiles = 0;
+		isolatedTiles = 0;
+
+		if (xindex != nextIndex) {
+			Log.info(String.format("Adaptive tile size [%d -> %d] [dirty:%.2f%%][isolated:%.2f%%]", SIZES[index], SIZES[xindex], 100.0 * dirtyRatio,
+					100.0 * isolatedRatio));
+		}
+
+		nextIndex = xindex;
+	}
+
+	private static boolean isIsolated(CaptureTile[] dirty, int tileCount, int tilesPerRow, int idx) {
+		final int column = idx % tilesPerRow;
+
+		if (column > 0 && dirty[idx - 1] != null) {
+			return false;
+		}
+		if (column < tilesPerRow - 1 && idx + 1 < tileCount && dirty[idx + 1] != null) {
+			return false;
+		}
+		if (idx >= tilesPerRow && dirty[idx - tilesPerRow] != null) {
+			return false;
+		}
+		return idx + tilesPerRow >= tileCount || dirty[idx + tilesPerRow] == null;
+	}
+}
@@ -1,24 +1,32 @@
 package mpo.dayon.assisted.capture;
 
+import java.awt.Rectangle;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jetbrains.annotations.Nullable;
 
+import mpo.dayon.assisted.control.ControlListener;
 import mpo.dayon.common.capture.Capture;
+import mpo.dayon.common.capture.CaptureDiff;
+import mpo.dayon.common.capture.CaptureStage;
 import mpo.dayon.common.capture.CaptureTile;
+import mpo.dayon.common.capture.CopyRect;
 import mpo.dayon.common.capture.Gray8Bits;
+import mpo.dayon.common.capture.TileHasher;
+import mpo.dayon.common.concurrent.Backpressure;
 import mpo.dayon.common.concurrent.RunnableEx;
 import mpo.dayon.common.configuration.ReConfigurable;
 import mpo.dayon.common.event.Listeners;
 import mpo.dayon.common.log.Log;
+import mpo.dayon.common.utils.ScreenUtilities;
 import mpo.dayon.common.utils.UnitUtilities;
 
-public class CaptureEngine implements ReConfigurable<CaptureEngineConfiguration> {
-	private static final int TILE_WIDTH = 32;
-
-	private static final int TILE_HEIGHT = 32;
-
+public class CaptureEngine implements ReConfigurable<CaptureEngineConfiguration>, ControlListener {
 	private final CaptureFactory captureFactory;
 
 	private final Listeners<CaptureEngineListener> listeners = new Listeners<>(CaptureEngineListener.class);
@@ -27,12 +35,174 @@ public class CaptureEngine implements ReConfigurable<CaptureEngineConfiguration>
 
 	/**
 	 * I keep only the checksum as I do not want to keep the referenceS to the
-	 * byte[] of the previous captureS.
+	 * byte[] of the previous captureS (one per tile of the current geometry).
+	 */
+	private long[] previousCapture;
+
+	/**
+	 * The hash of each scanline of the previous capture (either gray or RGB) :
+	 * the rows of tiles whose scanlines have not changed are skipped (not used
+	 * with the EXACT diff).
+	 */
+	private final long[] previousScanlines;
+
+	/**
+	 * The number of rows skipped since the last capture sent (capture thread
+	 * only).
+	 */
+	private int skippedRows;
+
+	/**
+	 * The checksums of the raw RGB tiles (RGB_CHECKSUM diff only).
+	 *
+	 * @see CaptureDiff#RGB_CHECKSUM
+	 */
+	@Nullable
+	private long[] previousRGBCapture;
+
+	/**
+	 * A copy of the previous gray capture (EXACT diff only) : a single
+	 * screen-rectangle buffer updated with the dirty tiles.
+	 *
+	 * @see CaptureDiff#EXACT
+	 */
+	@Nullable
+	private byte[] previousGrayCapture;
+
+	/**
+	 * False until the previous gray capture has been filled once (after a
+	 * reset all the tiles are dirty).
+	 */
+	private boolean previousGrayCaptureValid;
+
+	/**
+	 * Stateless : shared by the capture and band threads.
+	 */
+	private final TileHasher hasher = TileHasher.get();
+
+	/**
+	 * Null when the capture is processed by the capture thread only; otherwise
+	 * the row bands of the capture are processed in parallel (capture thread
+	 * only).
+	 */
+	@Nullable
+	private ForkJoinPool pool;
+
+	private int parallelism = 1;
+
+	/**
+	 * Capture thread only - or diff thread when pipelined - (i.e., read by the
+	 * band threads while processing a capture).
+	 */
+	private CaptureDiff diff;
+
+	/**
+	 * @see #diff
+	 */
+	private Gray8Bits quantization;
+
+	/**
+	 * The tile geometry : same as the diff.
+	 *
+	 * @see #diff
+	 */
+	private int tileWidth = CaptureEngineConfiguration.DEFAULT_CAPTURE_TILE_SIZE;
+
+	/**
+	 * @see #diff
+	 */
+	private int tileHeight = CaptureEngineConfiguration.DEFAULT_CAPTURE_TILE_SIZE;
+
+	/**
+	 * Null unless the tile geometry is adaptive (capture thread only).
+	 */
+	@Nullable
+	private AdaptiveTileSize adaptiveTileSize;
+
+	/**
+	 * The tile geometry has been adapted : the next capture sent is carrying
+	 * its gray screen (i.e., merging an older capture).
+	 *
+	 * @see Capture#setRetileSource(byte[])
+	 */
+	private boolean retiled;
+
+	/**
+	 * Null unless pipelined (capture thread only) : the capture thread is then
+	 * grabbing the screen only.
+	 */
+	@Nullable
+	private DiffStage diffStage;
+
+	/**
+	 * Null unless the shift detection is enabled (same as the diff).
+	 *
+	 * @see #diff
+	 */
+	@Nullable
+	private ShiftDetector shiftDetector;
+
+	/**
+	 * Null unless the video regions are enabled (same as the diff).
+	 *
+	 * @see #diff
+	 */
+	@Nullable
+	private VideoRegionDetector videoRegionDetector;
+
+	/**
+	 * @see #videoRegionDetector
+	 */
+	private Gray8Bits videoQuantization;
+
+	/**
+	 * The tiles whose latest content has not been sent as is (video regions)
+	 * : processed again on the next capture whatever the diff says (same as
+	 * the diff).
+	 *
+	 * @see #diff
+	 */
+	private boolean[] pendingTiles;
+
+	private final CapturePacer pacer = new CapturePacer();
+
+	/**
+	 * Null unless the idle mode is enabled (capture thread only).
+	 */
+	@Nullable
+	private IdleProbe idleProbe;
+
+	/**
+	 * @see #idleProbe
+	 */
+	private int idleFrameCount;
+
+	/**
+	 * @see #idleProbe
 	 */
-	private final long[] previousCapture;
+	private Gray8Bits idleQuantization;
+
+	/**
+	 * @see #idleProbe
+	 */
+	private boolean idle;
+
+	/**
+	 * The number of frames processed in a row without any dirty tile (written
+	 * by the processing thread, read by the capture thread).
+	 */
+	private volatile int unchangedFrameCount;
 
 	private final Object reconfigurationLOCK = new Object();
 
+	/**
+	 * Allows for waking up the capture thread waiting for its next tick (i.e.,
+	 * remote input).
+	 */
+	private final Object tickLOCK = new Object();
+
+	private boolean wokenUp;
+
 	private CaptureEngineConfiguration configuration;
 
 	private boolean reconfigured;
@@ -40,10 +210,9 @@ public class CaptureEngine implements ReConfigurable<CaptureEngineConfiguration>
 	public CaptureEngine(CaptureFactory captureFactory) {
 		this.captureFactory = captureFactory;
 
-		final int x = Math.round(captureFactory.getWidth() / (float) TILE_WIDTH);
-		final int y = Math.round(captureFactory.getHeight() / (float) TILE_HEIGHT);
-
-		this.previousCapture = new long[x * y + 200];
+		this.previousCapture = new long[computeTileCount()];
+		this.pendingTiles = new boolean[previousCapture.length];
+		this.previousScanlines = new long[captureFactory.getHeight()];
 		resetPreviousCapture();
 
 		this.thread = new Thread(new RunnableEx() {
@@ -80,94 +249,463 @@ public class CaptureEngine implements ReConfigurable<CaptureEngineConfiguration>
 		listeners.remove(listener);
 	}
 
+	/**
+	 * Burst : the remote input is going to change the screen so capture it
+	 * right now (and at a higher rate for a while).
+	 *
+	 * @see CaptureEngineConfiguration#getCaptureBurstWindow()
+	 */
+	public void onRemoteInput() {
+		if (pacer.onRemoteInput()) {
+			synchronized (tickLOCK) {
+				wokenUp = true;
+				tickLOCK.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * A downstream stage (e.g., compressor, network) taken into account for
+	 * the capture pacing.
+	 *
+	 * @see CaptureEngineConfiguration#getCaptureMinTick()
+	 */
+	public void addBackpressure(Backpressure downstream) {
+		pacer.addDownstream(downstream);
+	}
+
 	public void start() {
 		thread.start();
 	}
 
 	private void mainLoop() throws InterruptedException {
-		Gray8Bits quantization = null;
-		int tick = -1;
-
-		long start = -1;
+		long captureMaxEnd = -1;
 
 		int captureId = 0;
-		int captureCount = 0;
 
 		int skipped = 0;
 
 		while (true) {
-			boolean reset = false;
+			@Nullable
+			CaptureEngineConfiguration xconfiguration = null;
 
 			synchronized (reconfigurationLOCK) {
 				if (reconfigured) // assuming everything has changed (!)
 				{
-					skipped = 0;
-
-					start = System.currentTimeMillis();
-					captureCount = 0;
+					xconfiguration = configuration;
 
-					quantization = configuration.getCaptureQuantization();
-					tick = configuration.getCaptureTick();
+					skipped = 0;
 
-					resetPreviousCapture();
+					captureMaxEnd = System.currentTimeMillis();
 
-					// I'm using a flag to tag the capture as a RESET - it is
-					// then easier
-					// to handle the reset message until the assistant without
-					// having to
-					// change anything (e.g., merging mechanism in the
-					// compressor engine).
-					reset = true;
+					pacer.reset(configuration.getCaptureMinTick(), configuration.getCaptureTick(), configuration.getCaptureBurstWindow());
 
-					Log.info("Capture engine has been reconfigured [tile:" + captureId + "] " + configuration);
+					setupIdle(configuration.getCaptureIdleFrameCount(), configuration.getCaptureQuantization());
 
 					reconfigured = false;
 				}
 			}
 
-			++captureCount;
+			if (xconfiguration != null) {
+				setupPipeline(xconfiguration.isCapturePipelined());
+			}
+
 			++captureId;
 
-			@Nullable
-			final byte[] pixels = captureFactory.captureGray(quantization);
+			if (xconfiguration != null || !isIdle(captureId)) {
+				// Grabbing only : the conversion (if any) is part of the
+				// processing.
+				@Nullable
+				final int[] rgb = captureFactory.captureRGB();
 
-			if (pixels == null) // testing purpose (!)
-			{
-				Log.info("CaptureFactory has finisted!");
-				break;
-			}
+				if (rgb == null) // testing purpose (!)
+				{
+					Log.info("CaptureFactory has finisted!");
+					break;
+				}
 
-			fireOnRawCaptured(captureId, pixels); // debugging purpose (!)
+				final Frame frame = new Frame(captureId, skipped, xconfiguration, rgb, System.currentTimeMillis());
 
-			@Nullable
-			final CaptureTile[] dirty = computeDirtyTiles(captureId, pixels, captureFactory.getWidth(), captureFactory.getHeight(), previousCapture);
-
-			if (dirty != null) {
-				final Capture capture = new Capture(captureId, reset, skipped, 0, captureFactory.getWidth(), captureFactory.getHeight(), TILE_WIDTH,
-						TILE_HEIGHT, dirty);
-				fireOnCaptured(capture); // might update the capture (i.e.,
-											// merging with previous not sent
-											// yet)
-				updatePreviousCapture(capture);
+				if (diffStage != null) {
+					diffStage.post(frame);
+				} else {
+					process(frame);
+				}
 			}
 
-			final int delayedCaptureCount = syncOnTick(start, captureCount, captureId, tick);
+			final int tick = pacer.nextTick();
+
+			captureMaxEnd += tick;
 
-			captureCount += delayedCaptureCount;
+			final int delayedCaptureCount = syncOnTick(captureMaxEnd, captureId, tick);
+
+			captureMaxEnd += (long) delayedCaptureCount * tick;
 			captureId += delayedCaptureCount;
 
+			synchronized (tickLOCK) {
+				if (wokenUp) {
+					captureMaxEnd = System.currentTimeMillis(); // capturing right now (!)
+					wokenUp = false;
+				}
+			}
+
 			skipped = delayedCaptureCount;
 		}
 
+		setupPipeline(false); // processing the pending frames (if any)
+
+		if (pool != null) {
+			pool.shutdown();
+		}
+
 		Log.info("The capture engine has been stopped!");
 	}
 
-	private static int syncOnTick(final long start, final int captureCount, final int captureId, final long tick) throws InterruptedException {
+	/**
+	 * Converts, diffs and fires a grabbed frame : either from the capture
+	 * thread or from the diff thread (pipelined mode) but never from both at
+	 * the same time.
+	 */
+	private void process(Frame frame) {
+		boolean reset = false;
+
+		if (frame.configuration != null) {
+			skippedRows = 0;
+
+			quantization = frame.configuration.getCaptureQuantization();
+
+			setupParallelism(frame.configuration.getCaptureParallelism());
+			setupTiles(frame.configuration.getCaptureTileWidth(), frame.configuration.getCaptureTileHeight(), frame.configuration.isCaptureTileAdaptive());
+			setupDiff(frame.configuration.getCaptureDiff());
+			setupShiftDetection(frame.configuration.isCaptureShiftDetection());
+			setupVideoRegions(frame.configuration.getCaptureVideoThreshold(), frame.configuration.getCaptureVideoRefresh(),
+					frame.configuration.getCaptureVideoQuantization());
+
+			resetPreviousCapture();
+
+			retiled = false; // full capture anyway (!)
+
+			// I'm using a flag to tag the capture as a RESET - it is
+			// then easier
+			// to handle the reset message until the assistant without
+			// having to
+			// change anything (e.g., merging mechanism in the
+			// compressor engine).
+			reset = true;
+
+			Log.info("Capture engine has been reconfigured [tile:" + frame.captureId + "] " + frame.configuration);
+		}
+
+		final int captureId = frame.captureId;
+
+		@Nullable
+		final byte[] pixels;
+
+		@Nullable
+		final int[] rgb;
+
+		if (diff == CaptureDiff.RGB_CHECKSUM) {
+			pixels = null; // only the dirty tiles are converted (!)
+			rgb = frame.rgb;
+		} else {
+			pixels = captureFactory.toGray(quantization, frame.rgb, pool);
+			rgb = null;
+
+			captureFactory.release(frame.rgb);
+		}
+
+		if (pixels != null) {
+			fireOnRawCaptured(captureId, pixels); // debugging purpose (!)
+		}
+
+		@Nullable
+		final CaptureTile[] dirty = computeDirtyTiles(captureId, pixels, rgb, captureFactory.getWidth(), captureFactory.getHeight());
+
+		final int dirtyCount = dirty == null ? 0 : countDirtyTiles(dirty);
+
+		@Nullable
+		CaptureTile[] held = null;
+
+		Rectangle[] videoRegions = Capture.NO_VIDEO_REGION;
+
+		if (videoRegionDetector != null) {
+			videoRegionDetector.onCaptured(dirty);
+
+			Arrays.fill(pendingTiles, false);
+
+			if (videoRegionDetector.hasVideo()) {
+				if (dirty != null && !reset) {
+					held = applyVideoRegions(captureId, dirty, pixels);
+				}
+
+				videoRegions = videoRegionDetector.getRegions(
+						CaptureTile.getXYWH(captureFactory.getWidth(), captureFactory.getHeight(), tileWidth, tileHeight), computeTilesPerRow());
+			}
+		}
+
+		@Nullable
+		CaptureTile[] copied = null;
+
+		@Nullable
+		CopyRect[] copies = null;
+
+		if (shiftDetector != null && pixels != null && dirty != null) {
+			if (!reset) {
+				copied = new CaptureTile[dirty.length];
+				copies = shiftDetector.detect(pixels, dirty, copied, computeTilesPerRow());
+			}
+			shiftDetector.update(pixels, held);
+		}
+
+		// Nothing to send if all the dirty tiles have been held (!)
+		if (dirty != null && (copies != null || held == null || countDirtyTiles(dirty) > 0)) {
+			final Capture capture = new Capture(captureId, reset, frame.skipped, 0, skippedRows, captureFactory.getWidth(), captureFactory.getHeight(),
+					tileWidth, tileHeight, dirty, copies == null ? CopyRect.NONE : copies, copied, videoRegions);
+
+			if (retiled) {
+				capture.setRetileSource(createRetileSource(pixels, rgb));
+				retiled = false;
+			}
+
+			capture.stamp(CaptureStage.GRAB, frame.grabbed);
+			capture.stamp(CaptureStage.DIFF);
+
+			fireOnCaptured(capture); // might update the capture (i.e.,
+										// merging with previous not sent
+										// yet)
+			updatePreviousCapture(capture);
+
+			skippedRows = 0;
+		}
+
+		pacer.onProcessed(dirtyCount, previousCapture.length);
+
+		unchangedFrameCount = (dirty == null) ? unchangedFrameCount + 1 : 0;
+
+		if (adaptiveTileSize != null) {
+			adaptiveTileSize.onCaptured(dirty, previousCapture.length, computeTilesPerRow());
+
+			// Along with some dirty tiles (never on an idle screen) and once
+			// the assistant has the whole frame (i.e., no pending tile).
+			if (adaptiveTileSize.isChangePending() && dirty != null && !hasPendingTiles(0, pendingTiles.length)) {
+				retile(adaptiveTileSize.applyChange(), pixels, rgb);
+			}
+		}
+
+		// The dirty tiles are copies : the capture can be reused (!)
+		if (pixels != null) {
+			captureFactory.release(pixels);
+		} else {
+			captureFactory.release(frame.rgb);
+		}
+	}
+
+	/**
+	 * No RESET : the tile size is sent with every capture and the cache ids
+	 * are content hashes. The previous tiles are computed again from the
+	 * current frame (i.e., what the assistant has) so that only the tiles
+	 * changing from now on are sent.
+	 */
+	private void retile(int size, @Nullable byte[] gray, @Nullable int[] rgb) {
+		setupTiles(size, size);
+
+		final int width = captureFactory.getWidth();
+		final int height = captureFactory.getHeight();
+
+		int tileId = 0;
+
+		for (int ty = 0; ty < height; ty += tileHeight) {
+			final int th = Math.min(height - ty, tileHeight);
+
+			for (int tx = 0; tx < width; tx += tileWidth) {
+				final int tw = Math.min(width - tx, tileWidth);
+
+				final int offset = ty * width + tx;
+
+				if (rgb != null) {
+					previousRGBCapture[tileId] = hasher.hash(rgb, offset, width, tw, th);
+					previousCapture[tileId] = hasher.hash(ScreenUtilities.rgbToGray8(quantization, rgb, width, offset, tw, th), tw, th);
+				} else if (gray != null) {
+					previousCapture[tileId] = hasher.hash(gray, offset, width, tw, th);
+				}
+
+				++tileId;
+			}
+		}
+
+		if (shiftDetector != null) {
+			shiftDetector.invalidate();
+		}
+
+		if (videoRegionDetector != null) {
+			videoRegionDetector.reset(previousCapture.length);
+		}
+
+		retiled = true;
+	}
+
+	/**
+	 * A copy of the gray screen (the capture buffers are reused).
+	 */
+	private byte[] createRetileSource(@Nullable byte[] gray, @Nullable int[] rgb) {
+		if (gray != null) {
+			return gray.clone();
+		}
+
+		final byte[] xgray = captureFactory.toGray(quantization, rgb, pool);
+		final byte[] source = xgray.clone();
+
+		captureFactory.release(xgray);
+
+		return source;
+	}
+
+	/**
+	 * @param frameCount
+	 *            0 : no idle mode.
+	 */
+	private void setupIdle(int frameCount, Gray8Bits quantization) {
+		idleFrameCount = frameCount;
+		idleQuantization = quantization;
+		idle = false;
+
+		if (frameCount > 0) {
+			if (idleProbe == null) {
+				idleProbe = new IdleProbe(captureFactory);
+			}
+		} else {
+			idleProbe = null;
+		}
+
+		unchangedFrameCount = 0;
+	}
+
+	/**
+	 * Capture thread only.
+	 *
+	 * @return true if the screen is idle and the idle probe has not seen any
+	 *         change (i.e., no need to grab the screen)
+	 */
+	private boolean isIdle(int captureId) {
+		if (idleProbe == null || unchangedFrameCount < idleFrameCount || pacer.isBursting()) {
+			if (idle) {
+				idle = false;
+				Log.info("Capture engine is active [tile:" + captureId + "]");
+			}
+			return false;
+		}
+
+		if (!idle) {
+			idle = true;
+			idleProbe.reset();
+			Log.info("Capture engine is idle [tile:" + captureId + "]");
+		}
+
+		return !idleProbe.probe(idleQuantization);
+	}
+
+	private static int countDirtyTiles(CaptureTile[] dirty) {
+		int count = 0;
+
+		for (final CaptureTile tile : dirty) {
+			if (tile != null) {
+				++count;
+			}
+		}
+
+		return count;
+	}
+
+	private void setupPipeline(boolean pipelined) throws InterruptedException {
+		if (pipelined == (diffStage != null)) {
+			return;
+		}
+
+		if (pipelined) {
+			diffStage = new DiffStage();
+		} else {
+			diffStage.stop();
+			diffStage = null;
+		}
+
+		Log.info("Capture engine pipelined [" + pipelined + "]");
+	}
+
+	/**
+	 * @param configured
+	 *            0 : as many threads as available processors.
+	 */
+	private void setupParallelism(int configured) {
+		final int xparallelism = configured > 0 ? configured : Runtime.getRuntime().availableProcessors();
+
+		if (xparallelism == parallelism) {
+			return;
+		}
+
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+
+		parallelism = xparallelism;
+
+		if (parallelism > 1) {
+			pool = new ForkJoinPool(parallelism);
+		}
+
+		Log.info("Capture engine parallelism [" + parallelism + "]");
+	}
+
+	private void setupTiles(int width, int height, boolean adaptive) {
+		if (adaptive) {
+			adaptiveTileSize = new AdaptiveTileSize(width);
+
+			final int size = adaptiveTileSize.getTileSize();
+
+			setupTiles(size, size);
+		} else {
+			adaptiveTileSize = null;
+
+			setupTiles(width, height);
+		}
+	}
+
+	private void setupTiles(int width, int height) {
+		if (width == tileWidth && height == tileHeight) {
+			return;
+		}
+
+		tileWidth = width;
+		tileHeight = height;
+
+		previousCapture = new long[computeTileCount()];
+		pendingTiles = new boolean[previousCapture.length];
+
+		if (previousRGBCapture != null) {
+			previousRGBCapture = new long[previousCapture.length];
+		}
+
+		Log.info("Capture engine tile [" + tileWidth + "x" + tileHeight + "] [count:" + previousCapture.length + "]");
+	}
+
+	private int computeTilesPerRow() {
+		return (captureFactory.getWidth() + tileWidth - 1) / tileWidth;
+	}
+
+	private int computeTileCount() {
+		return computeTilesPerRow() * ((captureFactory.getHeight() + tileHeight - 1) / tileHeight);
+	}
+
+	/**
+	 * @param captureMaxEnd
+	 *            when the next capture is expected (the tick might change
+	 *            from one capture to the next one : adaptive pacing)
+	 */
+	private int syncOnTick(final long captureMaxEnd, final int captureId, final long tick) throws InterruptedException {
 		int delayedCaptureCount = 0;
 
 		while (true) {
-			final long captureMaxEnd = start + (captureCount + delayedCaptureCount) * tick;
-			final long capturePause = captureMaxEnd - System.currentTimeMillis();
+			final long capturePause = captureMaxEnd + delayedCaptureCount * tick - System.currentTimeMillis();
 
 			if (capturePause < 0) {
 				++delayedCaptureCount;
@@ -176,7 +714,11 @@ public class CaptureEngine implements ReConfigurable<CaptureEngineConfiguration>
 			}
 
 			if (capturePause > 0) {
-				Thread.sleep(capturePause);
+				synchronized (tickLOCK) {
+					if (!wokenUp) {
+						tickLOCK.wait(capturePause);
+					}
+				}
 			}
 
 			break;
@@ -185,52 +727,360 @@ public class CaptureEngine implements ReConfigurable<CaptureEngineConfiguration>
 		return delayedCaptureCount;
 	}
 
+	/**
+	 * @param threshold
+	 *            0 : no video region.
+	 */
+	private void setupVideoRegions(int threshold, int refresh, Gray8Bits quantization) {
+		videoRegionDetector = threshold > 0 ? new VideoRegionDetector(threshold, refresh) : null;
+		videoQuantization = quantization;
+
+		Log.info("Capture engine video regions [threshold:" + threshold + "%][refresh:" + refresh + "][quantization:" + quantization + "]");
+	}
+
+	/**
+	 * The dirty tiles of the video regions are either held (i.e., not sent
+	 * with that capture) or sent with less gray levels; they're pending until
+	 * sent as is.
+	 *
+	 * @param gray
+	 *            updated with the quantized tiles (shift detection)
+	 * @return the tiles held (null if none)
+	 */
+	@Nullable
+	private CaptureTile[] applyVideoRegions(int captureId, CaptureTile[] dirty, @Nullable byte[] gray) {
+		final boolean refreshed = videoRegionDetector.isRefreshed();
+		final boolean quantized = videoQuantization.getLevels() < quantization.getLevels();
+
+		@Nullable
+		CaptureTile[] held = null;
+
+		for (int idx = 0; idx < dirty.length; idx++) {
+			final CaptureTile tile = dirty[idx];
+
+			if (tile == null || !videoRegionDetector.isVideo(idx)) {
+				continue;
+			}
+
+			if (!refreshed) {
+				if (held == null) {
+					held = new CaptureTile[dirty.length];
+				}
+
+				held[idx] = tile;
+				dirty[idx] = null;
+				pendingTiles[idx] = true;
+			} else if (quantized) {
+				final int tw = tile.getWidth();
+				final int th = tile.getHeight();
+
+				final byte[] data = ScreenUtilities.quantize(videoQuantization, tile.getCapture().getInternal());
+
+				dirty[idx] = new CaptureTile(captureId, idx, hasher.hash(data, tw, th), tile.getX(), tile.getY(), tw, th, data);
+				pendingTiles[idx] = true;
+
+				if (gray != null && shiftDetector != null) {
+					final int width = captureFactory.getWidth();
+
+					for (int row = 0; row < th; row++) {
+						System.arraycopy(data, row * tw, gray, (tile.getY() + row) * width + tile.getX(), tw);
+					}
+				}
+			}
+		}
+
+		return held;
+	}
+
+	private void setupShiftDetection(boolean enabled) {
+		if (enabled && diff == CaptureDiff.RGB_CHECKSUM) {
+			Log.warn("Capture engine shift detection not available with the diff [" + diff + "]");
+			enabled = false;
+		}
+
+		if (enabled == (shiftDetector != null)) {
+			return;
+		}
+
+		shiftDetector = enabled ? new ShiftDetector(captureFactory.getWidth(), captureFactory.getHeight()) : null;
+
+		Log.info("Capture engine shift detection [" + enabled + "]");
+	}
+
+	private void setupDiff(CaptureDiff xdiff) {
+		diff = xdiff;
+
+		if (diff == CaptureDiff.RGB_CHECKSUM) {
+			if (previousRGBCapture == null) {
+				previousRGBCapture = new long[previousCapture.length];
+			}
+		} else {
+			previousRGBCapture = null;
+		}
+
+		if (diff == CaptureDiff.EXACT) {
+			if (previousGrayCapture == null) {
+				previousGrayCapture = new byte[captureFactory.getWidth() * captureFactory.getHeight()];
+			}
+		} else {
+			previousGrayCapture = null;
+		}
+
+		Log.info("Capture engine diff [" + diff + "] memory [" + UnitUtilities.toByteSize(computeDiffMemorySize()) + "]");
+	}
+
+	/**
+	 * The memory kept from one capture to the next one to detect the dirty
+	 * tiles (allows for choosing the diff according to the deployment).
+	 */
+	private long computeDiffMemorySize() {
+		long size = 8L * previousCapture.length + 8L * previousScanlines.length;
+
+		if (previousRGBCapture != null) {
+			size += 8L * previousRGBCapture.length;
+		}
+
+		if (previousGrayCapture != null) {
+			size += previousGrayCapture.length;
+		}
+
+		return size;
+	}
+
 	private void resetPreviousCapture() {
 		Arrays.fill(previousCapture, Long.MIN_VALUE);
+		Arrays.fill(previousScanlines, Long.MIN_VALUE);
+
+		if (previousRGBCapture != null) {
+			Arrays.fill(previousRGBCapture, Long.MIN_VALUE);
+		}
+
+		previousGrayCaptureValid = false;
+
+		if (shiftDetector != null) {
+			shiftDetector.invalidate();
+		}
+
+		Arrays.fill(pendingTiles, false);
+
+		if (videoRegionDetector != null) {
+			videoRegionDetector.reset(previousCapture.length);
+		}
 	}
 
 	private void updatePreviousCapture(Capture capture) {
-		final CaptureTile[] dirtyTiles = capture.getDirtyTiles();
+		updatePreviousCapture(capture.getDirtyTiles());
+
+		@Nullable
+		final CaptureTile[] copiedTiles = capture.getCopiedTiles(); // null if merged (!)
+
+		if (copiedTiles != null) {
+			updatePreviousCapture(copiedTiles);
+		}
+	}
 
-		for (int idx = 0; idx < dirtyTiles.length; idx++) {
-			final CaptureTile dirtyTile = dirtyTiles[idx];
+	private void updatePreviousCapture(CaptureTile[] tiles) {
+		for (int idx = 0; idx < tiles.length; idx++) {
+			final CaptureTile tile = tiles[idx];
 
-			if (dirtyTile != null) {
-				previousCapture[idx] = dirtyTile.getChecksum();
+			if (tile != null) {
+				previousCapture[idx] = tile.getChecksum();
 			}
 		}
 	}
 
+	/**
+	 * The tile ids (and their order) do not depend on the parallelism.
+	 *
+	 * @param gray
+	 *            the gray capture (null for the RGB_CHECKSUM diff)
+	 * @param rgb
+	 *            the raw RGB capture (RGB_CHECKSUM diff only)
+	 */
 	@Nullable
-	private static CaptureTile[] computeDirtyTiles(int captureId, byte[] capture, int width, int height, long[] previousCapture) {
-		CaptureTile[] dirty = null;
+	private CaptureTile[] computeDirtyTiles(int captureId, @Nullable byte[] gray, @Nullable int[] rgb, int width, int height) {
+		final DirtyTiles dirty = new DirtyTiles(previousCapture.length);
 
-		int tileId = 0;
+		final int rows = (height + tileHeight - 1) / tileHeight;
+
+		if (pool == null) {
+			computeDirtyTiles(dirty, captureId, gray, rgb, width, height, 0, rows);
+		} else {
+			pool.invoke(new DirtyTilesBand(dirty, captureId, gray, rgb, width, height, 0, rows));
+		}
+
+		if (previousGrayCapture != null) {
+			previousGrayCaptureValid = true;
+		}
+
+		skippedRows += dirty.getSkippedRows();
+
+		return dirty.get();
+	}
+
+	/**
+	 * @param fromRow
+	 *            the first row of tiles (inclusive)
+	 * @param toRow
+	 *            the last row of tiles (exclusive)
+	 */
+	private void computeDirtyTiles(DirtyTiles dirty, int captureId, @Nullable byte[] gray, @Nullable int[] rgb, int width, int height, int fromRow,
+			int toRow) {
+		final int tilesPerRow = (width + tileWidth - 1) / tileWidth;
+
+		for (int row = fromRow; row < toRow; row++) {
+			final int ty = row * tileHeight;
+			final int th = Math.min(height - ty, tileHeight);
 
-		for (int ty = 0; ty < height; ty += TILE_HEIGHT) {
-			final int th = Math.min(height - ty, TILE_HEIGHT);
+			if (isSameBand(gray, rgb, width, ty, th) && !hasPendingTiles(row * tilesPerRow, tilesPerRow)) {
+				dirty.addSkippedRows(th);
+				continue;
+			}
 
-			for (int tx = 0; tx < width; tx += TILE_WIDTH) {
-				final int tw = Math.min(width - tx, TILE_WIDTH);
+			int tileId = row * tilesPerRow;
+
+			for (int tx = 0; tx < width; tx += tileWidth) {
+				final int tw = Math.min(width - tx, tileWidth);
 
 				final int offset = ty * width + tx;
 
-				final byte[] data = createTile(capture, width, offset, tw, th);
+				@Nullable
+				final CaptureTile tile;
 
-				final long cs = CaptureTile.computeChecksum(data, 0, data.length);
+				if (rgb != null) {
+					tile = computeDirtyTile(captureId, tileId, rgb, width, offset, tx, ty, tw, th);
+				} else if (previousGrayCapture != null) {
+					tile = computeExactDirtyTile(captureId, tileId, gray, width, offset, tx, ty, tw, th);
+				} else {
+					tile = computeDirtyTile(captureId, tileId, gray, width, offset, tx, ty, tw, th);
+				}
 
-				if (cs != previousCapture[tileId]) {
-					if (dirty == null) {
-						dirty = new CaptureTile[previousCapture.length];
-					}
-					dirty[tileId] = new CaptureTile(captureId, tileId, cs, tx, ty, tw, th, data);
+				if (tile != null) {
+					dirty.set(tileId, tile);
 				}
 
 				++tileId;
 			}
 		}
+	}
+
+	/**
+	 * Scanline prefilter : a row of tiles whose scanlines have not changed is
+	 * not processed any further; all the scanlines are hashed to keep their
+	 * previous values up to date (those scanlines only belong to that band
+	 * thread).
+	 */
+	private boolean isSameBand(@Nullable byte[] gray, @Nullable int[] rgb, int width, int ty, int th) {
+		if (previousGrayCapture != null) // EXACT : no hash at all (!)
+		{
+			return previousGrayCaptureValid && isSameTile(gray, previousGrayCapture, width, ty * width, width, th);
+		}
+
+		boolean same = true;
+
+		for (int y = ty; y < ty + th; y++) {
+			final long hash = (rgb != null) ? hasher.hash(rgb, y * width, width, width, 1) : hasher.hash(gray, y * width, width, width, 1);
+
+			if (hash != previousScanlines[y]) {
+				previousScanlines[y] = hash;
+				same = false;
+			}
+		}
 
-		return dirty;
+		return same;
+	}
+
+	private boolean hasPendingTiles(int from, int count) {
+		for (int idx = from; idx < from + count; idx++) {
+			if (pendingTiles[idx]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Nullable
+	private CaptureTile computeDirtyTile(int captureId, int tileId, byte[] gray, int width, int offset, int tx, int ty, int tw, int th) {
+		// No copy until we know the tile has actually changed (!)
+		final long cs = hasher.hash(gray, offset, width, tw, th);
+
+		if (cs == previousCapture[tileId]) {
+			return null;
+		}
+
+		final byte[] data = createTile(gray, width, offset, tw, th);
+
+		return new CaptureTile(captureId, tileId, cs, tx, ty, tw, th, data);
+	}
+
+	/**
+	 * EXACT : the checksum is computed for the dirty tiles only (cache).
+	 */
+	@Nullable
+	private CaptureTile computeExactDirtyTile(int captureId, int tileId, byte[] gray, int width, int offset, int tx, int ty, int tw, int th) {
+		if (previousGrayCaptureValid && !pendingTiles[tileId] && isSameTile(gray, previousGrayCapture, width, offset, tw, th)) {
+			return null;
+		}
+
+		final byte[] data = createTile(gray, width, offset, tw, th);
+
+		// that tile-rectangle only belongs to that band thread (!)
+		int destPos = offset;
+
+		for (int row = 0; row < th; row++) {
+			System.arraycopy(data, row * tw, previousGrayCapture, destPos, tw);
+			destPos += width;
+		}
+
+		return new CaptureTile(captureId, tileId, hasher.hash(data, tw, th), tx, ty, tw, th, data);
+	}
+
+	/**
+	 * Row per row comparison of the same tile-rectangle of two
+	 * screen-rectangle buffers : exits on the first different byte.
+	 */
+	private static boolean isSameTile(byte[] capture, byte[] previous, int width, int offset, int tw, int th) {
+		int pos = offset;
+
+		for (int row = 0; row < th; row++) {
+			final int end = pos + tw;
+
+			for (int idx = pos; idx < end; idx++) {
+				if (capture[idx] != previous[idx]) {
+					return false;
+				}
+			}
+
+			pos += width;
+		}
+
+		return true;
+	}
+
+	/**
+	 * RGB_CHECKSUM : a tile whose RGB pixels have not changed is not converted
+	 * at all; a changed tile might still have the same gray levels (e.g.,
+	 * quantization) and then is not dirty either.
+	 */
+	@Nullable
+	private CaptureTile computeDirtyTile(int captureId, int tileId, int[] rgb, int width, int offset, int tx, int ty, int tw, int th) {
+		final long rgbcs = hasher.hash(rgb, offset, width, tw, th);
+
+		if (rgbcs == previousRGBCapture[tileId] && !pendingTiles[tileId]) {
+			return null;
+		}
+
+		previousRGBCapture[tileId] = rgbcs; // that tile only belongs to that band thread (!)
+
+		final byte[] data = ScreenUtilities.rgbToGray8(quantization, rgb, width, offset, tw, th);
+
+		final long cs = hasher.hash(data, tw, th);
+
+		if (cs == previousCapture[tileId]) {
+			return null;
+		}
+
+		return new CaptureTile(captureId, tileId, cs, tx, ty, tw, th, data);
 	}
 
 	/**
@@ -252,6 +1102,209 @@ public class CaptureEngine implements ReConfigurable<CaptureEngineConfiguration>
 		return tile;
 	}
 
+	/**
+	 * Lazily allocated as most of the captures of a quiet screen do not have
+	 * any dirty tile; possibly filled by several band threads (distinct
+	 * tiles). Counts the skipped rows as well.
+	 */
+	private static class DirtyTiles {
+		private final int length;
+
+		@Nullable
+		private volatile CaptureTile[] tiles;
+
+		private final AtomicInteger skippedRows = new AtomicInteger();
+
+		DirtyTiles(int length) {
+			this.length = length;
+		}
+
+		void addSkippedRows(int rows) {
+			skippedRows.addAndGet(rows);
+		}
+
+		int getSkippedRows() {
+			return skippedRows.get();
+		}
+
+		void set(int tileId, CaptureTile tile) {
+			CaptureTile[] xtiles = tiles;
+
+			if (xtiles == null) {
+				synchronized (this) {
+					if ((xtiles = tiles) == null) {
+						tiles = xtiles = new CaptureTile[length];
+					}
+				}
+			}
+
+			xtiles[tileId] = tile;
+		}
+
+		@Nullable
+		CaptureTile[] get() {
+			return tiles;
+		}
+	}
+
+	/**
+	 * A band of rows of tiles [fromRow, toRow[ : split in two halves until a
+	 * single row of tiles.
+	 */
+	private class DirtyTilesBand extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final DirtyTiles dirty;
+
+		private final int captureId;
+
+		@Nullable
+		private final byte[] gray;
+
+		@Nullable
+		private final int[] rgb;
+
+		private final int width;
+
+		private final int height;
+
+		private final int fromRow;
+
+		private final int toRow;
+
+		DirtyTilesBand(DirtyTiles dirty, int captureId, @Nullable byte[] gray, @Nullable int[] rgb, int width, int height, int fromRow, int toRow) {
+			this.dirty = dirty;
+			this.captureId = captureId;
+			this.gray = gray;
+			this.rgb = rgb;
+			this.width = width;
+			this.height = height;
+			this.fromRow = fromRow;
+			this.toRow = toRow;
+		}
+
+		@Override
+		protected void compute() {
+			if (toRow - fromRow <= 1) {
+				computeDirtyTiles(dirty, captureId, gray, rgb, width, height, fromRow, toRow);
+				return;
+			}
+
+			final int middle = (fromRow + toRow) >>> 1;
+
+			invokeAll(new DirtyTilesBand(dirty, captureId, gray, rgb, width, height, fromRow, middle),
+					new DirtyTilesBand(dirty, captureId, gray, rgb, width, height, middle, toRow));
+		}
+	}
+
+	/**
+	 * A grabbed screen (not processed yet).
+	 */
+	private static class Frame {
+		private static final Frame STOP = new Frame(-1, 0, null, new int[0], 0);
+
+		private final int captureId;
+
+		/**
+		 * The captures not grabbed (too late) or not processed (diff thread too
+		 * late) before that one.
+		 */
+		private final int skipped;
+
+		/**
+		 * Not null if that frame is the first one of a new configuration.
+		 */
+		@Nullable
+		private final CaptureEngineConfiguration configuration;
+
+		private final int[] rgb;
+
+		/**
+		 * Millis.
+		 *
+		 * @see CaptureStage#GRAB
+		 */
+		private final long grabbed;
+
+		Frame(int captureId, int skipped, @Nullable CaptureEngineConfiguration configuration, int[] rgb, long grabbed) {
+			this.captureId = captureId;
+			this.skipped = skipped;
+			this.configuration = configuration;
+			this.rgb = rgb;
+			this.grabbed = grabbed;
+		}
+
+		/**
+		 * That frame replacing an older one not processed yet.
+		 */
+		Frame replace(Frame older) {
+			return new Frame(captureId, skipped + older.skipped + 1, configuration != null ? configuration : older.configuration, rgb, grabbed);
+		}
+	}
+
+	/**
+	 * Pipelined mode : the capture thread is grabbing the frames while the diff
+	 * thread is converting, diffing and firing them. When the diff thread is
+	 * late the oldest frame waiting is dropped and counted as skipped in the
+	 * next one : the capture thread never waits for the diff thread.
+	 */
+	private class DiffStage {
+		private static final int DEPTH = 2;
+
+		private final ArrayBlockingQueue<Frame> frames = new ArrayBlockingQueue<>(DEPTH);
+
+		private final Thread thread;
+
+		DiffStage() {
+			this.thread = new Thread(new RunnableEx() {
+				protected void doRun() throws Exception {
+					DiffStage.this.mainLoop();
+				}
+			}, "CaptureEngineDiff");
+
+			thread.start();
+		}
+
+		/**
+		 * Capture thread only.
+		 */
+		void post(Frame frame) {
+			Frame xframe = frame;
+
+			while (!frames.offer(xframe)) {
+				final Frame older = frames.poll();
+
+				if (older != null) {
+					Log.warn("Dropping capture (" + older.captureId + ") [diff late]");
+
+					captureFactory.release(older.rgb);
+					xframe = xframe.replace(older);
+				}
+			}
+		}
+
+		/**
+		 * Capture thread only : returns once the pending frames have been
+		 * processed.
+		 */
+		void stop() throws InterruptedException {
+			frames.put(Frame.STOP);
+			thread.join();
+		}
+
+		private void mainLoop() throws InterruptedException {
+			while (true) {
+				final Frame frame = frames.take();
+
+				if (frame == Frame.STOP) {
+					break;
+				}
+
+				process(frame);
+			}
+		}
+	}
+
 	private void fireOnCaptured(Capture capture) {
 		final List<CaptureEngineListener> xlisteners = listeners.getListeners();
 
@@ -1,5 +1,6 @@
 package mpo.dayon.assisted.capture;
 
+import mpo.dayon.common.capture.CaptureDiff;
 import mpo.dayon.common.capture.Gray8Bits;
 import mpo.dayon.common.configuration.Configuration;
 import mpo.dayon.common.preference.Preferences;
@@ -11,6 +12,46 @@ public class CaptureEngineConfiguration extends Configuration {
 
 	private static final String PREF_CAPTURE_QUANTIZATION = "assistant.capture.grayLevelQuantization";
 
+	private static final String PREF_CAPTURE_PARALLELISM = "assistant.capture.parallelism";
+
+	private static final String PREF_CAPTURE_DIFF = "assistant.capture.diff";
+
+	private static final String PREF_CAPTURE_TILE_WIDTH = "assistant.capture.tileWidth";
+
+	private static final String PREF_CAPTURE_TILE_HEIGHT = "assistant.capture.tileHeight";
+
+	private static final String PREF_CAPTURE_TILE_ADAPTIVE = "assistant.capture.tileAdaptive";
+
+	private static final String PREF_CAPTURE_PIPELINED = "assistant.capture.pipelined";
+
+	private static final String PREF_CAPTURE_MIN_TICK = "assistant.capture.minTick";
+
+	private static final String PREF_CAPTURE_IDLE_FRAME_COUNT = "assistant.capture.idleFrameCount";
+
+	private static final String PREF_CAPTURE_BURST_WINDOW = "assistant.capture.burstWindow";
+
+	private static final String PREF_CAPTURE_SHIFT_DETECTION = "assistant.capture.shiftDetection";
+
+	private static final String PREF_CAPTURE_VIDEO_THRESHOLD = "assistant.capture.videoThreshold";
+
+	private static final String PREF_CAPTURE_VIDEO_REFRESH = "assistant.capture.videoRefresh";
+
+	private static final String PREF_CAPTURE_VIDEO_QUANTIZATION = "assistant.capture.videoQuantization";
+
+	/**
+	 * Let the assisted side decide according to its number of processors.
+	 */
+	public static final int DEFAULT_CAPTURE_PARALLELISM = 0;
+
+	public static final int DEFAULT_CAPTURE_TILE_SIZE = 32;
+
+	/**
+	 * The run-length encoder writes the length of a run as a (negative) short.
+	 */
+	public static final int MIN_CAPTURE_TILE_SIZE = 8;
+
+	public static final int MAX_CAPTURE_TILE_SIZE = 128;
+
 	/**
 	 * A capture is performed every tick (millis).
 	 */
@@ -21,6 +62,79 @@ public class CaptureEngineConfiguration extends Configuration {
 	 */
 	private final Gray8Bits captureQuantization;
 
+	/**
+	 * The number of threads converting and comparing the row bands of a
+	 * capture (0 : the number of processors of the assisted side).
+	 */
+	private final int captureParallelism;
+
+	/**
+	 * How the dirty tiles are detected.
+	 */
+	private final CaptureDiff captureDiff;
+
+	private final int captureTileWidth;
+
+	private final int captureTileHeight;
+
+	/**
+	 * The (square) tile size is then decided by the assisted according to the
+	 * activity of the screen (starting from the tile width).
+	 */
+	private final boolean captureTileAdaptive;
+
+	/**
+	 * The screen is grabbed by a thread while the previous grab is converted
+	 * and compared by another one.
+	 */
+	private final boolean capturePipelined;
+
+	/**
+	 * Adaptive pacing : the tick goes down to that one while the screen is
+	 * changing (and the network is not saturated); not adaptive if not below
+	 * the capture tick.
+	 */
+	private final int captureMinTick;
+
+	/**
+	 * Idle mode : after that many captures without any change the screen is
+	 * probed (a few strips only) until a change is seen (0 : no idle mode).
+	 */
+	private final int captureIdleFrameCount;
+
+	/**
+	 * Burst mode : a remote input (mouse, key) triggers a capture right away;
+	 * the tick then goes from the min tick back to the capture tick within
+	 * that window (millis; 0 : no burst mode).
+	 */
+	private final int captureBurstWindow;
+
+	/**
+	 * Scrolling and window move : the dirty tiles found (as is) at a shifted
+	 * location of the previous capture are copied by the assistant from its
+	 * own screen (not available with the RGB_CHECKSUM diff).
+	 */
+	private final boolean captureShiftDetection;
+
+	/**
+	 * Video regions : a tile that has changed in at least that percentage of
+	 * the last captures is refreshed according to the video refresh and
+	 * quantization (0 : no video region).
+	 */
+	private final int captureVideoThreshold;
+
+	/**
+	 * The tiles of the video regions are sent every that many captures (1 :
+	 * every capture).
+	 */
+	private final int captureVideoRefresh;
+
+	/**
+	 * The gray levels of the tiles of the video regions (if less than the
+	 * capture quantization).
+	 */
+	private final Gray8Bits captureVideoQuantization;
+
 	/**
 	 * Default : takes its values from the current preferences.
 	 *
@@ -34,17 +148,72 @@ public class CaptureEngineConfiguration extends Configuration {
 		if (!prefs.isNull() && version == 0) {
 			captureTick = (int) (1000.0 / prefs.getDoublePreference("generations", 2.0));
 			captureQuantization = prefs.getEnumPreference("grayLevels", Gray8Bits.X_256, Gray8Bits.values());
+			captureParallelism = DEFAULT_CAPTURE_PARALLELISM;
+			captureDiff = CaptureDiff.CHECKSUM;
+			captureTileWidth = DEFAULT_CAPTURE_TILE_SIZE;
+			captureTileHeight = DEFAULT_CAPTURE_TILE_SIZE;
+			captureTileAdaptive = false;
+			capturePipelined = false;
+			captureMinTick = captureTick;
+			captureIdleFrameCount = 0;
+			captureBurstWindow = 0;
+			captureShiftDetection = false;
+			captureVideoThreshold = 0;
+			captureVideoRefresh = 1;
+			captureVideoQuantization = captureQuantization;
 
 			persist(true);
 		} else {
 			captureTick = prefs.getIntPreference(PREF_CAPTURE_TICK, 500);
 			captureQuantization = prefs.getEnumPreference(PREF_CAPTURE_QUANTIZATION, Gray8Bits.X_256, Gray8Bits.values());
+			captureParallelism = prefs.getIntPreference(PREF_CAPTURE_PARALLELISM, DEFAULT_CAPTURE_PARALLELISM);
+			captureDiff = prefs.getEnumPreference(PREF_CAPTURE_DIFF, CaptureDiff.CHECKSUM, CaptureDiff.values());
+			captureTileWidth = clampTileSize(prefs.getIntPreference(PREF_CAPTURE_TILE_WIDTH, DEFAULT_CAPTURE_TILE_SIZE));
+			captureTileHeight = clampTileSize(prefs.getIntPreference(PREF_CAPTURE_TILE_HEIGHT, DEFAULT_CAPTURE_TILE_SIZE));
+			captureTileAdaptive = prefs.getBooleanPreference(PREF_CAPTURE_TILE_ADAPTIVE, false);
+			capturePipelined = prefs.getBooleanPreference(PREF_CAPTURE_PIPELINED, false);
+			captureMinTick = prefs.getIntPreference(PREF_CAPTURE_MIN_TICK, captureTick);
+			captureIdleFrameCount = prefs.getIntPreference(PREF_CAPTURE_IDLE_FRAME_COUNT, 0);
+			captureBurstWindow = prefs.getIntPreference(PREF_CAPTURE_BURST_WINDOW, 0);
+			captureShiftDetection = prefs.getBooleanPreference(PREF_CAPTURE_SHIFT_DETECTION, false);
+			captureVideoThreshold = prefs.getIntPreference(PREF_CAPTURE_VIDEO_THRESHOLD, 0);
+			captureVideoRefresh = prefs.getIntPreference(PREF_CAPTURE_VIDEO_REFRESH, 1);
+			captureVideoQuantization = prefs.getEnumPreference(PREF_CAPTURE_VIDEO_QUANTIZATION, captureQuantization, Gray8Bits.values());
 		}
 	}
 
 	public CaptureEngineConfiguration(int captureTick, Gray8Bits captureQuantization) {
+		this(captureTick, captureQuantization, DEFAULT_CAPTURE_PARALLELISM, CaptureDiff.CHECKSUM);
+	}
+
+	public CaptureEngineConfiguration(int captureTick, Gray8Bits captureQuantization, int captureParallelism, CaptureDiff captureDiff) {
+		this(captureTick, captureQuantization, captureParallelism, captureDiff, DEFAULT_CAPTURE_TILE_SIZE, DEFAULT_CAPTURE_TILE_SIZE, false, false,
+				captureTick, 0, 0, false, 0, 1, captureQuantization);
+	}
+
+	public CaptureEngineConfiguration(int captureTick, Gray8Bits captureQuantization, int captureParallelism, CaptureDiff captureDiff,
+			int captureTileWidth, int captureTileHeight, boolean captureTileAdaptive, boolean capturePipelined, int captureMinTick,
+			int captureIdleFrameCount, int captureBurstWindow, boolean captureShiftDetection, int captureVideoThreshold, int captureVideoRefresh,
+			Gray8Bits captureVideoQuantization) {
 		this.captureTick = captureTick;
 		this.captureQuantization = captureQuantization;
+		this.captureParallelism = captureParallelism;
+		this.captureDiff = captureDiff;
+		this.captureTileWidth = clampTileSize(captureTileWidth);
+		this.captureTileHeight = clampTileSize(captureTileHeight);
+		this.captureTileAdaptive = captureTileAdaptive;
+		this.capturePipelined = capturePipelined;
+		this.captureMinTick = captureMinTick;
+		this.captureIdleFrameCount = captureIdleFrameCount;
+		this.captureBurstWindow = captureBurstWindow;
+		this.captureShiftDetection = captureShiftDetection;
+		this.captureVideoThreshold = captureVideoThreshold;
+		this.captureVideoRefresh = captureVideoRefresh;
+		this.captureVideoQuantization = captureVideoQuantization;
+	}
+
+	private static int clampTileSize(int size) {
+		return Math.max(MIN_CAPTURE_TILE_SIZE, Math.min(MAX_CAPTURE_TILE_SIZE, size));
 	}
 
 	public int getCaptureTick() {
@@ -55,6 +224,58 @@ public class CaptureEngineConfiguration extends Configuration {
 		return captureQuantization;
 	}
 
+	public int getCaptureParallelism() {
+		return captureParallelism;
+	}
+
+	public CaptureDiff getCaptureDiff() {
+		return captureDiff;
+	}
+
+	public int getCaptureTileWidth() {
+		return captureTileWidth;
+	}
+
+	public int getCaptureTileHeight() {
+		return captureTileHeight;
+	}
+
+	public boolean isCaptureTileAdaptive() {
+		return captureTileAdaptive;
+	}
+
+	public boolean isCapturePipelined() {
+		return capturePipelined;
+	}
+
+	public int getCaptureMinTick() {
+		return captureMinTick;
+	}
+
+	public int getCaptureIdleFrameCount() {
+		return captureIdleFrameCount;
+	}
+
+	public int getCaptureBurstWindow() {
+		return captureBurstWindow;
+	}
+
+	public boolean isCaptureShiftDetection() {
+		return captureShiftDetection;
+	}
+
+	public int getCaptureVideoThreshold() {
+		return captureVideoThreshold;
+	}
+
+	public int getCaptureVideoRefresh() {
+		return captureVideoRefresh;
+	}
+
+	public Gray8Bits getCaptureVideoQuantization() {
+		return captureVideoQuantization;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) {
@@ -66,13 +287,32 @@ public class CaptureEngineConfiguration extends Configuration {
 
 		final CaptureEngineConfiguration that = (CaptureEngineConfiguration) o;
 
-		return captureTick == that.captureTick && captureQuantization == that.captureQuantization;
+		return captureTick == that.captureTick && captureQuantization == that.captureQuantization && captureParallelism == that.captureParallelism
+				&& captureDiff == that.captureDiff && captureTileWidth == that.captureTileWidth && captureTileHeight == that.captureTileHeight
+				&& captureTileAdaptive == that.captureTileAdaptive && capturePipelined == that.capturePipelined
+				&& captureMinTick == that.captureMinTick && captureIdleFrameCount == that.captureIdleFrameCount
+				&& captureBurstWindow == that.captureBurstWindow && captureShiftDetection == that.captureShiftDetection
+				&& captureVideoThreshold == that.captureVideoThreshold && captureVideoRefresh == that.captureVideoRefresh
+				&& captureVideoQuantization == that.captureVideoQuantization;
 	}
 
 	@Override
 	public int hashCode() {
 		int result = captureTick;
 		result = 31 * result + (captureQuantization != null ? captureQuantization.hashCode() : 0);
+		result = 31 * result + captureParallelism;
+		result = 31 * result + (captureDiff != null ? captureDiff.hashCode() : 0);
+		result = 31 * result + captureTileWidth;
+		result = 31 * result + captureTileHeight;
+		result = 31 * result + (captureTileAdaptive ? 1 : 0);
+		result = 31 * result + (capturePipelined ? 1 : 0);
+		result = 31 * result + captureMinTick;
+		result = 31 * result + captureIdleFrameCount;
+		result = 31 * result + captureBurstWindow;
+		result = 31 * result + (captureShiftDetection ? 1 : 0);
+		result = 31 * result + captureVideoThreshold;
+		result = 31 * result + captureVideoRefresh;
+		result = 31 * result + (captureVideoQuantization != null ? captureVideoQuantization.hashCode() : 0);
 		return result;
 	}
 
@@ -86,6 +326,19 @@ public class CaptureEngineConfiguration extends Configuration {
 			props.set(PREF_VERSION, String.valueOf(1));
 			props.set(PREF_CAPTURE_TICK, String.valueOf(captureTick));
 			props.set(PREF_CAPTURE_QUANTIZATION, String.valueOf(captureQuantization.ordinal()));
+			props.set(PREF_CAPTURE_PARALLELISM, String.valueOf(captureParallelism));
+			props.set(PREF_CAPTURE_DIFF, String.valueOf(captureDiff.ordinal()));
+			props.set(PREF_CAPTURE_TILE_WIDTH, String.valueOf(captureTileWidth));
+			props.set(PREF_CAPTURE_TILE_HEIGHT, String.valueOf(captureTileHeight));
+			props.set(PREF_CAPTURE_TILE_ADAPTIVE, String.valueOf(captureTileAdaptive));
+			props.set(PREF_CAPTURE_PIPELINED, String.valueOf(capturePipelined));
+			props.set(PREF_CAPTURE_MIN_TICK, String.valueOf(captureMinTick));
+			props.set(PREF_CAPTURE_IDLE_FRAME_COUNT, String.valueOf(captureIdleFrameCount));
+			props.set(PREF_CAPTURE_BURST_WINDOW, String.valueOf(captureBurstWindow));
+			props.set(PREF_CAPTURE_SHIFT_DETECTION, String.valueOf(captureShiftDetection));
+			props.set(PREF_CAPTURE_VIDEO_THRESHOLD, String.valueOf(captureVideoThreshold));
+			props.set(PREF_CAPTURE_VIDEO_REFRESH, String.valueOf(captureVideoRefresh));
+			props.set(PREF_CAPTURE_VIDEO_QUANTIZATION, String.valueOf(captureVideoQuantization.ordinal()));
 
 			if (clear) // migration support (!)
 			{
@@ -100,6 +353,9 @@ public class CaptureEngineConfiguration extends Configuration {
 
 	@Override
 	public String toString() {
-		return "[tick:" + captureTick + "][quantization:" + captureQuantization + "]";
+		return "[tick:" + captureTick + "][quantization:" + captureQuantization + "][parallelism:" + captureParallelism + "][diff:" + captureDiff + "][tile:" + captureTileWidth + "x"
+				+ captureTileHeight + (captureTileAdaptive ? "(adaptive)" : "") + "][pipelined:" + capturePipelined + "][minTick:" + captureMinTick + "][idle:"
+				+ captureIdleFrameCount + "][burst:" + captureBurstWindow + "][shift:" + captureShiftDetection + "][video:" + captureVideoThreshold
+				+ "%/" + captureVideoRefresh + "/" + captureVideoQuantization + "]";
 	}
 }
@@ -10,7 +10,8 @@ public interface CaptureEngineListener extends Listener {
 	void onCaptured(Capture capture);
 
 	/**
-	 * Must not block: debugging purpose.
+	 * Must not block: debugging purpose. The grays are only valid during the
+	 * call (the buffer is reused for a next capture).
 	 */
 	void onRawCaptured(int id, byte[] grays);
 }
@@ -1,5 +1,8 @@
 package mpo.dayon.assisted.capture;
 
+import java.awt.Rectangle;
+import java.util.concurrent.ForkJoinPool;
+
 import org.jetbrains.annotations.Nullable;
 
 import mpo.dayon.common.capture.Gray8Bits;
@@ -9,7 +12,37 @@ abstract class CaptureFactory {
 
 	public abstract int getHeight();
 
+	/**
+	 * The raw RGB capture : the gray conversion is left to the caller.
+	 */
+	@Nullable
+	public abstract int[] captureRGB();
+
+	/**
+	 * A part of the screen only (e.g., idle probe).
+	 */
 	@Nullable
-	public abstract byte[] captureGray(Gray8Bits quantization);
+	public abstract byte[] captureGray(Rectangle bounds, Gray8Bits quantization);
+
+	/**
+	 * Converts a raw RGB capture into gray levels (the RGB capture is left
+	 * unchanged).
+	 *
+	 * @see #captureRGB()
+	 */
+	public abstract byte[] toGray(Gray8Bits quantization, int[] rgb, @Nullable ForkJoinPool pool);
+
+	/**
+	 * Hands a gray capture back once the engine is done with it (i.e., no
+	 * reference kept anymore) : the factory might reuse it for a next capture.
+	 */
+	public void release(byte[] gray) {
+	}
+
+	/**
+	 * @see #release(byte[])
+	 */
+	public void release(int[] rgb) {
+	}
 
 }
@@ -0,0 +1,143 @@
+package mpo.dayon.assisted.capture;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import mpo.dayon.common.concurrent.Backpressure;
+
+/**
+ * Adaptive capture pacing within [minTick, maxTick] : faster while the screen
+ * is changing and the downstream stages (compressor, network) have room for
+ * more captures; slower when they're saturated (captures merged or dropped)
+ * or when the screen is idle.
+ * <p/>
+ * Thread safe : the tick is requested by the capture thread while the
+ * captures might be processed by the diff thread (pipelined mode).
+ */
+class CapturePacer {
+	/**
+	 * Weight of the last processed capture in the smoothed dirty ratio.
+	 */
+	private static final double DIRTY_RATIO_WEIGHT = 0.5;
+
+	/**
+	 * Below that (smoothed) ratio of dirty tiles the screen is idle.
+	 */
+	private static final double IDLE_DIRTY_RATIO = 0.0001;
+
+	/**
+	 * Above that occupancy a downstream stage is saturated.
+	 */
+	private static final double SATURATED_OCCUPANCY = 1.0;
+
+	private final List<Backpressure> downstreams = new CopyOnWriteArrayList<>();
+
+	private int minTick;
+
+	private int maxTick;
+
+	private int tick;
+
+	private double dirtyRatio;
+
+	private int overflowCount;
+
+	/**
+	 * @see #onRemoteInput()
+	 */
+	private int burstWindow;
+
+	private long burstEnd;
+
+	void addDownstream(Backpressure downstream) {
+		downstreams.add(downstream);
+	}
+
+	/**
+	 * @param minTick
+	 *            not adaptive if not below the max tick
+	 */
+	synchronized void reset(int minTick, int maxTick, int burstWindow) {
+		this.minTick = Math.min(minTick, maxTick);
+		this.maxTick = maxTick;
+		this.tick = maxTick;
+		this.dirtyRatio = 0.0;
+		this.overflowCount = computeOverflowCount();
+		this.burstWindow = burstWindow;
+		this.burstEnd = 0;
+	}
+
+	/**
+	 * Burst : the tick starts at the min tick and then goes back (linearly)
+	 * to the max tick within the burst window.
+	 *
+	 * @return false if there is no burst window (i.e., ignored)
+	 */
+	synchronized boolean onRemoteInput() {
+		if (burstWindow <= 0) {
+			return false;
+		}
+
+		burstEnd = System.currentTimeMillis() + burstWindow;
+		return true;
+	}
+
+	synchronized boolean isBursting() {
+		return System.currentTimeMillis() < burstEnd;
+	}
+
+	synchronized void onProcessed(int dirtyTileCount, int tileCount) {
+		dirtyRatio = DIRTY_RATIO_WEIGHT * dirtyTileCount / tileCount + (1.0 - DIRTY_RATIO_WEIGHT) * dirtyRatio;
+	}
+
+	/**
+	 * @return the delay until the next capture (millis)
+	 */
+	synchronized int nextTick() {
+		final long remaining = burstEnd - System.currentTimeMillis();
+
+		if (remaining > 0) {
+			tick = (int) (minTick + (maxTick - minTick) * (burstWindow - remaining) / burstWindow);
+			return tick;
+		}
+
+		if (minTick == maxTick) {
+			return tick;
+		}
+
+		final int xoverflowCount = computeOverflowCount();
+		final boolean overflowed = xoverflowCount != overflowCount;
+
+		overflowCount = xoverflowCount;
+
+		if (overflowed || computeOccupancy() >= SATURATED_OCCUPANCY) {
+			tick = Math.min(maxTick, 2 * tick); // backing off quickly (!)
+		} else if (dirtyRatio > IDLE_DIRTY_RATIO) {
+			tick = Math.max(minTick, 3 * tick / 4);
+		} else {
+			tick = Math.min(maxTick, tick + Math.max(1, (maxTick - minTick) / 8));
+		}
+
+		return tick;
+	}
+
+	private double computeOccupancy() {
+		double occupancy = 0.0;
+
+		for (final Backpressure downstream : downstreams) {
+			occupancy = Math.max(occupancy, downstream.getOccupancy());
+		}
+
+		return occupancy;
+	}
+
+	private int computeOverflowCount() {
+		int count = 0;
+
+		for (final Backpressure downstream : downstreams) {
+			count += downstream.getOverflowCount();
+		}
+
+		return count;
+	}
+}
@@ -0,0 +1,46 @@
+package mpo.dayon.assisted.capture;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A small ring of (preallocated) screen-size gray buffers : the capture
+ * engine hands a buffer back once done with it and that buffer is then
+ * reused for a next capture (i.e., no more several MB allocated per
+ * capture).
+ * <p/>
+ * Thread safe : a buffer might be handed back from another thread than the
+ * capturing one.
+ */
+class GrayBufferRing {
+	private final int bufferSize;
+
+	private final ArrayBlockingQueue<byte[]> buffers;
+
+	GrayBufferRing(int capacity, int bufferSize) {
+		this.bufferSize = bufferSize;
+		this.buffers = new ArrayBlockingQueue<>(capacity);
+
+		for (int idx = 0; idx < capacity; idx++) {
+			buffers.offer(new byte[bufferSize]);
+		}
+	}
+
+	/**
+	 * @return a new buffer when all the buffers of the ring are still in use
+	 *         (e.g., a listener slower than expected)
+	 */
+	byte[] acquire() {
+		final byte[] buffer = buffers.poll();
+
+		return buffer != null ? buffer : new byte[bufferSize];
+	}
+
+	/**
+	 * Dropped if the ring is full (or not a buffer of this ring).
+	 */
+	void release(byte[] buffer) {
+		if (buffer.length == bufferSize) {
+			buffers.offer(buffer);
+		}
+	}
+}
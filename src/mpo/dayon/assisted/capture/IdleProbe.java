@@ -0,0 +1,135 @@
+package mpo.dayon.assisted.capture;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+import org.jetbrains.annotations.Nullable;
+
+import mpo.dayon.common.capture.Gray8Bits;
+import mpo.dayon.common.capture.TileHasher;
+
+/**
+ * Idle mode : instead of grabbing (and hashing) the whole screen, a few small
+ * squares spread over the screen are grabbed and compared to the previous
+ * ones; a full capture is required as soon as one of them has changed (and
+ * every few probes anyway as a change might happen in between the squares).
+ * <p/>
+ * The squares are taken from a grid covering the screen : each probe is
+ * grabbing another few of them (i.e., a few robot calls per probe) so that
+ * the whole grid has been probed before the next full capture.
+ * <p/>
+ * Capture thread only.
+ */
+class IdleProbe {
+	/**
+	 * The size of a probed square (pixels).
+	 */
+	private static final int SQUARE_SIZE = 32;
+
+	/**
+	 * The grid of the probed squares.
+	 */
+	private static final int GRID_COLUMNS = 8;
+
+	private static final int GRID_ROWS = 6;
+
+	/**
+	 * A full capture every that many probes.
+	 */
+	private static final int FULL_CAPTURE_PERIOD = 8;
+
+	/**
+	 * The squares grabbed by a probe : the whole grid between two full
+	 * captures.
+	 */
+	private static final int SQUARES_PER_PROBE = (GRID_COLUMNS * GRID_ROWS + FULL_CAPTURE_PERIOD - 2) / (FULL_CAPTURE_PERIOD - 1);
+
+	/**
+	 * Going through the grid by that step (prime with the grid size) : the
+	 * squares of a probe are spread over the screen.
+	 */
+	private static final int GRID_STEP = GRID_COLUMNS - 1;
+
+	private final CaptureFactory captureFactory;
+
+	private final Rectangle[] squares;
+
+	private final long[] previous;
+
+	private final TileHasher hasher = TileHasher.get();
+
+	private int probeCount;
+
+	/**
+	 * The next square to probe (grid order).
+	 */
+	private int cursor;
+
+	IdleProbe(CaptureFactory captureFactory) {
+		this.captureFactory = captureFactory;
+
+		final int width = captureFactory.getWidth();
+		final int height = captureFactory.getHeight();
+
+		final int sw = Math.min(SQUARE_SIZE, width);
+		final int sh = Math.min(SQUARE_SIZE, height);
+
+		this.squares = new Rectangle[GRID_COLUMNS * GRID_ROWS];
+
+		for (int row = 0; row < GRID_ROWS; row++) {
+			for (int col = 0; col < GRID_COLUMNS; col++) {
+				final int x = (2 * col + 1) * width / (2 * GRID_COLUMNS) - sw / 2;
+				final int y = (2 * row + 1) * height / (2 * GRID_ROWS) - sh / 2;
+
+				squares[row * GRID_COLUMNS + col] = new Rectangle(Math.max(0, Math.min(width - sw, x)), Math.max(0, Math.min(height - sh, y)), sw, sh);
+			}
+		}
+
+		this.previous = new long[squares.length];
+
+		reset();
+	}
+
+	/**
+	 * Entering the idle mode : the next probed squares are the reference ones.
+	 */
+	void reset() {
+		Arrays.fill(previous, Long.MIN_VALUE);
+		probeCount = 0;
+	}
+
+	/**
+	 * @return true if a full capture is required
+	 */
+	boolean probe(Gray8Bits quantization) {
+		if (++probeCount % FULL_CAPTURE_PERIOD == 0) {
+			return true;
+		}
+
+		for (int count = 0; count < SQUARES_PER_PROBE; count++) {
+			final int idx = (cursor * GRID_STEP) % squares.length;
+
+			cursor = (cursor + 1) % squares.length;
+
+			final Rectangle square = squares[idx];
+
+			@Nullable
+			final byte[] gray = captureFactory.captureGray(square, quantization);
+
+			if (gray == null) {
+				return true;
+			}
+
+			final long hash = hasher.hash(gray, square.width, square.height);
+			final long prev = previous[idx];
+
+			previous[idx] = hash;
+
+			if (prev != Long.MIN_VALUE && prev != hash) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+}
@@ -1,6 +1,10 @@
 package mpo.dayon.assisted.capture;
 
+import java.awt.Rectangle;
 import java.awt.Toolkit;
+import java.util.concurrent.ForkJoinPool;
+
+import org.jetbrains.annotations.Nullable;
 
 import mpo.dayon.common.capture.Gray8Bits;
 import mpo.dayon.common.utils.ScreenUtilities;
@@ -17,6 +21,14 @@ public class RobotCaptureFactory extends CaptureFactory {
 		CAPTURE_HEIGHT = toolkit.getScreenSize().height;
 	}
 
+	/**
+	 * A capture being processed, another one being handed to the listeners and
+	 * a spare one.
+	 */
+	private static final int GRAY_BUFFER_COUNT = 3;
+
+	private final GrayBufferRing grayBuffers = new GrayBufferRing(GRAY_BUFFER_COUNT, CAPTURE_WIDTH * CAPTURE_HEIGHT);
+
 	public int getWidth() {
 		return CAPTURE_WIDTH;
 	}
@@ -25,7 +37,24 @@ public class RobotCaptureFactory extends CaptureFactory {
 		return CAPTURE_HEIGHT;
 	}
 
-	public byte[] captureGray(Gray8Bits quantization) {
-		return ScreenUtilities.captureGray(quantization);
+	/**
+	 * Note that the robot peer is always allocating a new RGB buffer (i.e.,
+	 * nothing to reuse).
+	 */
+	public int[] captureRGB() {
+		return ScreenUtilities.captureRGB();
+	}
+
+	public byte[] captureGray(Rectangle bounds, Gray8Bits quantization) {
+		return ScreenUtilities.captureGray(bounds, quantization);
+	}
+
+	public byte[] toGray(Gray8Bits quantization, int[] rgb, @Nullable ForkJoinPool pool) {
+		return ScreenUtilities.rgbToGray8(quantization, rgb, CAPTURE_WIDTH, pool, grayBuffers.acquire());
+	}
+
+	@Override
+	public void release(byte[] gray) {
+		grayBuffers.release(gray);
 	}
 }
@@ -0,0 +1,469 @@
+package mpo.dayon.assisted.capture;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jetbrains.annotations.Nullable;
+
+import mpo.dayon.common.capture.CaptureTile;
+import mpo.dayon.common.capture.CopyRect;
+
+/**
+ * Scrolling and window move detection : a dirty tile found (as is) in the
+ * previous capture at a shifted location is not sent anymore; the assistant
+ * is copying it from its own previous screen instead (copy-rectangles).
+ * <p/>
+ * The candidate shifts are found by searching a (non-uniform) row of a few
+ * dirty tiles within the previous capture (same column, same row and then
+ * around the tile) : the searched rows of the previous capture are hashed
+ * (rolling hash) and the bytes are compared only when the hashes are the
+ * same. Then every dirty tile is compared (byte per byte) to the previous
+ * capture shifted by each candidate.
+ * <p/>
+ * Capture thread only (or diff thread when pipelined).
+ */
+class ShiftDetector {
+	/**
+	 * Below that number of (multi-level) dirty tiles it is not worth
+	 * searching.
+	 */
+	private static final int MIN_DIRTY_TILES = 8;
+
+	private static final int SAMPLE_COUNT = 6;
+
+	private static final int MAX_CANDIDATES = 8;
+
+	/**
+	 * The range of the search around a sample tile (i.e., window move).
+	 */
+	private static final int MAX_MOVE = 96;
+
+	private static final int PRIME = 0x01000193;
+
+	private final int width;
+
+	private final int height;
+
+	private final byte[] previous;
+
+	private boolean previousValid;
+
+	private final int[] candidateDx = new int[MAX_CANDIDATES];
+
+	private final int[] candidateDy = new int[MAX_CANDIDATES];
+
+	private int candidateCount;
+
+	/**
+	 * The hashes of the searched rows of the previous capture.
+	 */
+	private final int[] hashes;
+
+	ShiftDetector(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.previous = new byte[width * height];
+		this.hashes = new int[Math.max(width, height)];
+	}
+
+	/**
+	 * The previous capture is not known anymore (e.g., reset).
+	 */
+	void invalidate() {
+		previousValid = false;
+		candidateCount = 0;
+	}
+
+	/**
+	 * The current capture becomes the previous one.
+	 *
+	 * @param kept
+	 *            the tiles not sent (if any) : keeping their previous content
+	 *            (the gray capture is updated)
+	 */
+	void update(byte[] gray, @Nullable CaptureTile[] kept) {
+		if (kept != null) {
+			for (final CaptureTile tile : kept) {
+				if (tile != null) {
+					int pos = tile.getY() * width + tile.getX();
+
+					for (int row = 0; row < tile.getHeight(); row++) {
+						System.arraycopy(previous, pos, gray, pos, tile.getWidth());
+						pos += width;
+					}
+				}
+			}
+		}
+
+		System.arraycopy(gray, 0, previous, 0, previous.length);
+		previousValid = true;
+	}
+
+	/**
+	 * The shifted tiles are moved from the dirty tiles to the copied tiles.
+	 *
+	 * @return the copy-rectangles (null if none)
+	 */
+	@Nullable
+	CopyRect[] detect(byte[] gray, CaptureTile[] dirty, CaptureTile[] copied, int tilesPerRow) {
+		if (!previousValid) {
+			return null;
+		}
+
+		int count = 0;
+
+		for (final CaptureTile tile : dirty) {
+			if (tile != null && tile.getSingleLevel() == -1) {
+				++count;
+			}
+		}
+
+		if (count < MIN_DIRTY_TILES) {
+			return null;
+		}
+
+		searchCandidates(gray, dirty, count);
+
+		if (candidateCount == 0) {
+			return null;
+		}
+
+		final int[] shifts = new int[dirty.length]; // candidate + 1 (0 : not shifted)
+
+		int shifted = 0;
+		int last = 0;
+
+		for (int idx = 0; idx < dirty.length; idx++) {
+			final CaptureTile tile = dirty[idx];
+
+			if (tile == null || tile.getSingleLevel() != -1) {
+				continue;
+			}
+
+			for (int cidx = 0; cidx < candidateCount; cidx++) {
+				final int candidate = (last + cidx) % candidateCount; // same shift as the previous tile first
+
+				if (isShifted(gray, tile.getX(), tile.getY(), tile.getWidth(), tile.getHeight(), candidateDx[candidate], candidateDy[candidate])) {
+					shifts[idx] = candidate + 1;
+					last = candidate;
+
+					copied[idx] = tile;
+					dirty[idx] = null;
+
+					++shifted;
+					break;
+				}
+			}
+		}
+
+		if (shifted == 0) {
+			candidateCount = 0;
+			return null;
+		}
+
+		return createCopies(copied, shifts, tilesPerRow);
+	}
+
+	/**
+	 * Keeps the candidates of the previous capture (e.g., scrolling) and adds
+	 * the ones found for a few sample tiles.
+	 */
+	private void searchCandidates(byte[] gray, CaptureTile[] dirty, int count) {
+		final int step = Math.max(1, count / SAMPLE_COUNT);
+
+		int sample = 0;
+
+		for (final CaptureTile tile : dirty) {
+			if (tile == null || tile.getSingleLevel() != -1) {
+				continue;
+			}
+
+			if (sample++ % step != 0) {
+				continue;
+			}
+
+			if (isCandidate(gray, tile)) {
+				continue;
+			}
+
+			searchCandidate(gray, tile);
+		}
+	}
+
+	private boolean isCandidate(byte[] gray, CaptureTile tile) {
+		for (int cidx = 0; cidx < candidateCount; cidx++) {
+			if (isShifted(gray, tile.getX(), tile.getY(), tile.getWidth(), tile.getHeight(), candidateDx[cidx], candidateDy[cidx])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void searchCandidate(byte[] gray, CaptureTile tile) {
+		final int tx = tile.getX();
+		final int ty = tile.getY();
+		final int tw = tile.getWidth();
+		final int th = tile.getHeight();
+
+		final int row = findDistinctiveRow(gray, tx, ty, tw, th);
+
+		if (row == -1) {
+			return;
+		}
+
+		final int y = ty + row;
+
+		final int hash = hashRow(gray, y * width + tx, tw);
+		final int power = power(tw);
+
+		// vertical : scrolling
+		for (int sy = 0; sy < height; sy++) {
+			hashes[sy] = hashRow(previous, sy * width + tx, tw);
+		}
+
+		for (int dy = 1; dy < height; dy++) {
+			if (y - dy >= 0 && hashes[y - dy] == hash && isCandidate(gray, tile, y, 0, dy)) {
+				return;
+			}
+			if (y + dy < height && hashes[y + dy] == hash && isCandidate(gray, tile, y, 0, -dy)) {
+				return;
+			}
+		}
+
+		// horizontal : scrolling
+		final int lastX = width - tw;
+
+		hashRow(y, 0, lastX, tw, power);
+
+		for (int dx = 1; dx < width; dx++) {
+			if (tx - dx >= 0 && hashes[tx - dx] == hash && isCandidate(gray, tile, y, dx, 0)) {
+				return;
+			}
+			if (tx + dx <= lastX && hashes[tx + dx] == hash && isCandidate(gray, tile, y, -dx, 0)) {
+				return;
+			}
+		}
+
+		// around : window move
+		final int fromX = Math.max(0, tx - MAX_MOVE);
+		final int toX = Math.min(lastX, tx + MAX_MOVE);
+
+		for (int dy = -MAX_MOVE; dy <= MAX_MOVE; dy++) {
+			final int sy = y - dy;
+
+			if (dy == 0 || sy < 0 || sy >= height) {
+				continue;
+			}
+
+			hashRow(sy, fromX, toX, tw, power);
+
+			for (int dx = -MAX_MOVE; dx <= MAX_MOVE; dx++) {
+				final int sx = tx - dx;
+
+				if (dx != 0 && sx >= fromX && sx <= toX && hashes[sx - fromX] == hash && isCandidate(gray, tile, y, dx, dy)) {
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * The hashes of the rows (from, sy) to (to, sy) of the previous capture
+	 * (rolling hash).
+	 */
+	private void hashRow(int sy, int from, int to, int length, int power) {
+		final int offset = sy * width;
+
+		if (from > to) {
+			return;
+		}
+
+		int hash = hashRow(previous, offset + from, length);
+		hashes[0] = hash;
+
+		for (int sx = from + 1; sx <= to; sx++) {
+			hash = hash * PRIME + (previous[offset + sx + length - 1] & 0xFF) - (previous[offset + sx - 1] & 0xFF) * power;
+			hashes[sx - from] = hash;
+		}
+	}
+
+	private static int hashRow(byte[] data, int offset, int length) {
+		int hash = 0;
+
+		for (int x = 0; x < length; x++) {
+			hash = hash * PRIME + (data[offset + x] & 0xFF);
+		}
+		return hash;
+	}
+
+	/**
+	 * @return PRIME ^ length (the weight of the byte leaving the rolling hash)
+	 */
+	private static int power(int length) {
+		int power = 1;
+
+		for (int x = 0; x < length; x++) {
+			power *= PRIME;
+		}
+		return power;
+	}
+
+	/**
+	 * @return true if the row of the tile is found at the shifted location of
+	 *         the previous capture and the whole tile as well (the candidate
+	 *         is then added)
+	 */
+	private boolean isCandidate(byte[] gray, CaptureTile tile, int y, int dx, int dy) {
+		final int tx = tile.getX();
+		final int tw = tile.getWidth();
+
+		final int sx = tx - dx;
+		final int sy = y - dy;
+
+		if (sx < 0 || sy < 0 || sx + tw > width || sy >= height) {
+			return false;
+		}
+
+		if (!isSameRow(gray, y * width + tx, sy * width + sx, tw)) {
+			return false;
+		}
+
+		if (!isShifted(gray, tx, tile.getY(), tw, tile.getHeight(), dx, dy)) {
+			return false;
+		}
+
+		if (candidateCount == MAX_CANDIDATES) {
+			--candidateCount; // dropping the last one (!)
+		}
+
+		candidateDx[candidateCount] = dx;
+		candidateDy[candidateCount] = dy;
+		++candidateCount;
+
+		return true;
+	}
+
+	/**
+	 * @return the row (within the tile) with the most changes of level (-1 if
+	 *         the tile is uniform)
+	 */
+	private int findDistinctiveRow(byte[] gray, int tx, int ty, int tw, int th) {
+		int best = -1;
+		int bestChanges = 0;
+
+		for (int row = 0; row < th; row++) {
+			final int offset = (ty + row) * width + tx;
+
+			int changes = 0;
+
+			for (int x = 1; x < tw; x++) {
+				if (gray[offset + x] != gray[offset + x - 1]) {
+					++changes;
+				}
+			}
+
+			if (changes > bestChanges) {
+				best = row;
+				bestChanges = changes;
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * @return true if the tile of the current capture is the tile at (x - dx,
+	 *         y - dy) of the previous capture
+	 */
+	private boolean isShifted(byte[] gray, int tx, int ty, int tw, int th, int dx, int dy) {
+		final int sx = tx - dx;
+		final int sy = ty - dy;
+
+		if (sx < 0 || sy < 0 || sx + tw > width || sy + th > height) {
+			return false;
+		}
+
+		for (int row = 0; row < th; row++) {
+			if (!isSameRow(gray, (ty + row) * width + tx, (sy + row) * width + sx, tw)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private boolean isSameRow(byte[] gray, int offset, int previousOffset, int length) {
+		for (int x = 0; x < length; x++) {
+			if (gray[offset + x] != previous[previousOffset + x]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The horizontal runs of tiles with the same shift are merged vertically
+	 * (same columns) into rectangles.
+	 */
+	private CopyRect[] createCopies(CaptureTile[] copied, int[] shifts, int tilesPerRow) {
+		final List<CopyRect> copies = new ArrayList<>();
+
+		List<int[]> opened = new ArrayList<>(); // x, y, w, h, shift
+
+		for (int start = 0; start < copied.length; start += tilesPerRow) {
+			final List<int[]> xopened = new ArrayList<>();
+
+			int idx = start;
+
+			while (idx < start + tilesPerRow) {
+				final int shift = shifts[idx];
+
+				if (shift == 0) {
+					++idx;
+					continue;
+				}
+
+				final CaptureTile first = copied[idx];
+
+				int w = 0;
+
+				while (idx < start + tilesPerRow && shifts[idx] == shift) {
+					w += copied[idx].getWidth();
+					++idx;
+				}
+
+				final int[] run = new int[] { first.getX(), first.getY(), w, first.getHeight(), shift };
+
+				xopened.add(extend(opened, run));
+			}
+
+			close(opened, copies);
+			opened = xopened;
+		}
+
+		close(opened, copies);
+
+		return copies.toArray(new CopyRect[0]);
+	}
+
+	private static int[] extend(List<int[]> opened, int[] run) {
+		for (int idx = 0; idx < opened.size(); idx++) {
+			final int[] rect = opened.get(idx);
+
+			if (rect[0] == run[0] && rect[2] == run[2] && rect[4] == run[4] && rect[1] + rect[3] == run[1]) {
+				rect[3] += run[3];
+				opened.remove(idx);
+				return rect;
+			}
+		}
+		return run;
+	}
+
+	private void close(List<int[]> opened, List<CopyRect> copies) {
+		for (final int[] rect : opened) {
+			final int candidate = rect[4] - 1;
+
+			copies.add(new CopyRect(rect[0], rect[1], rect[2], rect[3], rect[0] - candidateDx[candidate], rect[1] - candidateDy[candidate]));
+		}
+	}
+}
@@ -0,0 +1,188 @@
+package mpo.dayon.assisted.capture;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jetbrains.annotations.Nullable;
+
+import mpo.dayon.common.capture.Capture;
+import mpo.dayon.common.capture.CaptureTile;
+import mpo.dayon.common.log.Log;
+
+/**
+ * Per-tile change frequency : a tile that has changed in most of the last
+ * captures (e.g., embedded video, animation, spinner) is part of a video
+ * region. The capture engine then refreshes those tiles less often and/or
+ * with less gray levels.
+ * <p/>
+ * Capture thread only (or diff thread when pipelined).
+ */
+class VideoRegionDetector {
+	/**
+	 * The number of captures the frequency is computed on (one bit per
+	 * capture).
+	 */
+	private static final int WINDOW = 16;
+
+	private static final int WINDOW_MASK = (1 << WINDOW) - 1;
+
+	/**
+	 * Entering a video region : that many changes within the window.
+	 */
+	private final int enterCount;
+
+	/**
+	 * Leaving a video region : less than that many changes within the window.
+	 */
+	private final int leaveCount;
+
+	private final int refresh;
+
+	private int[] history;
+
+	/**
+	 * The checksum of the last content seen (not necessarily sent) : a held
+	 * tile is dirty again on the next capture even if it has not changed.
+	 */
+	private long[] checksums;
+
+	private boolean[] video;
+
+	private int videoCount;
+
+	private int captureCount;
+
+	/**
+	 * @param threshold
+	 *            the percentage of captures a tile must have changed in
+	 * @param refresh
+	 *            the video tiles are sent every that many captures
+	 */
+	VideoRegionDetector(int threshold, int refresh) {
+		this.enterCount = Math.max(1, (WINDOW * threshold + 99) / 100);
+		this.leaveCount = Math.max(1, enterCount / 2);
+		this.refresh = Math.max(1, refresh);
+
+		reset(0);
+	}
+
+	void reset(int tileCount) {
+		history = new int[tileCount];
+		checksums = new long[tileCount];
+		video = new boolean[tileCount];
+
+		Arrays.fill(checksums, Long.MIN_VALUE);
+
+		videoCount = 0;
+		captureCount = 0;
+	}
+
+	/**
+	 * @param dirty
+	 *            null if nothing has changed
+	 */
+	void onCaptured(@Nullable CaptureTile[] dirty) {
+		++captureCount;
+
+		final int previousVideoCount = videoCount;
+
+		for (int idx = 0; idx < history.length; idx++) {
+			final CaptureTile tile = dirty == null ? null : dirty[idx];
+
+			int bits = history[idx] << 1;
+
+			if (tile != null && tile.getChecksum() != checksums[idx]) {
+				checksums[idx] = tile.getChecksum();
+				bits |= 1;
+			}
+
+			history[idx] = bits & WINDOW_MASK;
+
+			final int count = Integer.bitCount(history[idx]);
+
+			if (!video[idx] && count >= enterCount) {
+				video[idx] = true;
+				++videoCount;
+			} else if (video[idx] && count < leaveCount) {
+				video[idx] = false;
+				--videoCount;
+			}
+		}
+
+		if (videoCount != previousVideoCount && (videoCount == 0 || previousVideoCount == 0)) {
+			Log.info("Video region detector [tiles:" + videoCount + "]");
+		}
+	}
+
+	boolean hasVideo() {
+		return videoCount > 0;
+	}
+
+	boolean isVideo(int tileId) {
+		return video[tileId];
+	}
+
+	/**
+	 * @return true if the video tiles are sent with the current capture
+	 */
+	boolean isRefreshed() {
+		return captureCount % refresh == 0;
+	}
+
+	/**
+	 * The horizontal runs of video tiles merged vertically (same columns).
+	 */
+	Rectangle[] getRegions(CaptureTile.XYWH[] xywh, int tilesPerRow) {
+		if (videoCount == 0) {
+			return Capture.NO_VIDEO_REGION;
+		}
+
+		final List<Rectangle> regions = new ArrayList<>();
+
+		List<Rectangle> opened = new ArrayList<>();
+
+		for (int start = 0; start < video.length; start += tilesPerRow) {
+			final List<Rectangle> xopened = new ArrayList<>();
+
+			int idx = start;
+
+			while (idx < start + tilesPerRow) {
+				if (!video[idx]) {
+					++idx;
+					continue;
+				}
+
+				final Rectangle run = new Rectangle(xywh[idx].x, xywh[idx].y, 0, xywh[idx].h);
+
+				while (idx < start + tilesPerRow && video[idx]) {
+					run.width += xywh[idx].w;
+					++idx;
+				}
+
+				xopened.add(extend(opened, run));
+			}
+
+			regions.addAll(opened);
+			opened = xopened;
+		}
+
+		regions.addAll(opened);
+
+		return regions.toArray(new Rectangle[0]);
+	}
+
+	private static Rectangle extend(List<Rectangle> opened, Rectangle run) {
+		for (int idx = 0; idx < opened.size(); idx++) {
+			final Rectangle region = opened.get(idx);
+
+			if (region.x == run.x && region.width == run.width && region.y + region.height == run.y) {
+				region.height += run.height;
+				opened.remove(idx);
+				return region;
+			}
+		}
+		return run;
+	}
+}
@@ -0,0 +1,154 @@
+package mpo.dayon.assisted.compressor;
+
+import java.util.Arrays;
+
+import mpo.dayon.common.log.Log;
+import mpo.dayon.common.squeeze.CompressionMethod;
+
+/**
+ * The AUTO compression method : the compression method of each capture is
+ * the one with the lowest estimated delivery time (compression + network)
+ * according to the ratio and the speed measured for each method on the
+ * previous captures of the same size class.
+ * <p/>
+ * The measures are kept up to date by compressing a capture from time to
+ * time (sampling) with the method measured the longest ago.
+ * <p/>
+ * Compressor thread only.
+ */
+class CompressionMethodSelector {
+	private static final CompressionMethod[] CANDIDATES = { CompressionMethod.LZ4, CompressionMethod.ZIP, CompressionMethod.DEFLATE,
+			CompressionMethod.BZIP2, CompressionMethod.LZMA };
+
+	/**
+	 * The (initial) byte count upper bounds of the size classes : the ratio
+	 * and the speed of a method depend on the amount of data (e.g., small
+	 * incremental capture vs. full screen reset).
+	 */
+	private static final int[] SIZE_CLASSES = { 64 * 1024, 512 * 1024, Integer.MAX_VALUE };
+
+	/**
+	 * Weight of the last capture in the smoothed ratios and speeds.
+	 */
+	private static final double MEASURE_WEIGHT = 0.25;
+
+	/**
+	 * Every that many captures (of a size class) the method measured the
+	 * longest ago is used (i.e., not necessarily the best one).
+	 */
+	private static final int SAMPLING_PERIOD = 32;
+
+	/**
+	 * Until the network has been measured (bytes per second).
+	 */
+	private static final double DEFAULT_THROUGHPUT = 1024 * 1024;
+
+	/**
+	 * Compressed size / initial size.
+	 */
+	private final double[][] ratios = new double[SIZE_CLASSES.length][CANDIDATES.length];
+
+	/**
+	 * Nanos per initial byte.
+	 */
+	private final double[][] speeds = new double[SIZE_CLASSES.length][CANDIDATES.length];
+
+	/**
+	 * The capture count (of the size class) of the last measure (-1 : never
+	 * measured).
+	 */
+	private final int[][] measuredAt = new int[SIZE_CLASSES.length][CANDIDATES.length];
+
+	private final int[] captureCounts = new int[SIZE_CLASSES.length];
+
+	private CompressionMethod selected;
+
+	CompressionMethodSelector() {
+		for (final int[] xmeasuredAt : measuredAt) {
+			Arrays.fill(xmeasuredAt, -1);
+		}
+	}
+
+	/**
+	 * @param throughput
+	 *            of the network (bytes per second - 0 : unknown)
+	 * @param networkOccupancy
+	 *            of the network queue : the network time counts more when
+	 *            the network is the bottleneck
+	 * @param occupancy
+	 *            of the compressor queue : the compression time counts more
+	 *            when the compressor is the bottleneck
+	 */
+	CompressionMethod select(int initialByteCount, double throughput, double networkOccupancy, double occupancy) {
+		final int sizeClass = computeSizeClass(initialByteCount);
+		final int count = ++captureCounts[sizeClass];
+
+		int stalest = 0;
+
+		for (int midx = 0; midx < CANDIDATES.length; midx++) {
+			if (measuredAt[sizeClass][midx] < measuredAt[sizeClass][stalest]) {
+				stalest = midx;
+			}
+		}
+
+		if (measuredAt[sizeClass][stalest] == -1 || count % SAMPLING_PERIOD == 0) {
+			return CANDIDATES[stalest]; // sampling (!)
+		}
+
+		final double xthroughput = throughput > 0.0 ? throughput : DEFAULT_THROUGHPUT;
+
+		int best = 0;
+		double bestTime = Double.MAX_VALUE;
+
+		for (int midx = 0; midx < CANDIDATES.length; midx++) {
+			final double compression = initialByteCount * speeds[sizeClass][midx] / 1000000000.0 * (1.0 + occupancy);
+			final double network = initialByteCount * ratios[sizeClass][midx] / xthroughput * (1.0 + networkOccupancy);
+
+			if (compression + network < bestTime) {
+				best = midx;
+				bestTime = compression + network;
+			}
+		}
+
+		if (selected != CANDIDATES[best]) {
+			selected = CANDIDATES[best];
+
+			Log.info(String.format("Compression method selected [%s] [size:%d] [throughput:%.0f KB/s]", selected, initialByteCount, xthroughput / 1024));
+		}
+
+		return selected;
+	}
+
+	void onCompressed(CompressionMethod method, int initialByteCount, int compressedByteCount, long nanos) {
+		final int midx = Arrays.asList(CANDIDATES).indexOf(method);
+
+		if (midx == -1 || initialByteCount == 0) {
+			return;
+		}
+
+		final int sizeClass = computeSizeClass(initialByteCount);
+
+		final double ratio = compressedByteCount / (double) initialByteCount;
+		final double speed = nanos / (double) initialByteCount;
+
+		if (measuredAt[sizeClass][midx] == -1) {
+			ratios[sizeClass][midx] = ratio;
+			speeds[sizeClass][midx] = speed;
+		} else {
+			ratios[sizeClass][midx] = MEASURE_WEIGHT * ratio + (1.0 - MEASURE_WEIGHT) * ratios[sizeClass][midx];
+			speeds[sizeClass][midx] = MEASURE_WEIGHT * speed + (1.0 - MEASURE_WEIGHT) * speeds[sizeClass][midx];
+		}
+
+		measuredAt[sizeClass][midx] = captureCounts[sizeClass];
+	}
+
+	private static int computeSizeClass(int initialByteCount) {
+		int sizeClass = 0;
+
+		while (initialByteCount > SIZE_CLASSES[sizeClass]) {
+			++sizeClass;
+		}
+
+		return sizeClass;
+	}
+}
@@ -1,34 +1,77 @@
 package mpo.dayon.assisted.compressor;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jetbrains.annotations.Nullable;
 
 import mpo.dayon.assisted.capture.CaptureEngineListener;
 import mpo.dayon.common.buffer.MemByteBuffer;
 import mpo.dayon.common.capture.Capture;
+import mpo.dayon.common.capture.CaptureStage;
+import mpo.dayon.common.concurrent.Backpressure;
 import mpo.dayon.common.concurrent.DefaultThreadFactoryEx;
 import mpo.dayon.common.concurrent.Executable;
+import mpo.dayon.common.concurrent.Throughput;
 import mpo.dayon.common.configuration.ReConfigurable;
 import mpo.dayon.common.event.Listeners;
 import mpo.dayon.common.log.Log;
 import mpo.dayon.common.squeeze.CompressionMethod;
 import mpo.dayon.common.squeeze.Compressor;
+import mpo.dayon.common.squeeze.Framebuffer;
 import mpo.dayon.common.squeeze.NullTileCache;
+import mpo.dayon.common.squeeze.PersistentTileCache;
 import mpo.dayon.common.squeeze.RegularTileCache;
 import mpo.dayon.common.squeeze.TileCache;
 
-public class CompressorEngine implements ReConfigurable<CompressorEngineConfiguration>, CaptureEngineListener {
+public class CompressorEngine implements ReConfigurable<CompressorEngineConfiguration>, CaptureEngineListener, Backpressure {
 	private final Listeners<CompressorEngineListener> listeners = new Listeners<>(CompressorEngineListener.class);
 
 	private ThreadPoolExecutor executor;
 
+	/**
+	 * The chunks of a capture compressed in parallel (null : single
+	 * processor).
+	 */
+	private ForkJoinPool pool;
+
+	private int queueSize;
+
+	/**
+	 * The captures merged into a newer one (i.e., captured for nothing).
+	 */
+	private final AtomicInteger mergedCount = new AtomicInteger();
+
 	private TileCache cache;
 
+	/**
+	 * The assistant screen (null : no delta).
+	 */
+	@Nullable
+	private Framebuffer framebuffer;
+
+	/**
+	 * Per compression method : kept until the next re-configuration (stateful
+	 * compressor).
+	 */
+	private final Compressor[] compressors = new Compressor[CompressionMethod.values().length];
+
+	/**
+	 * The AUTO compression method (null otherwise).
+	 */
+	private CompressionMethodSelector selector;
+
+	/**
+	 * The stage the compressed captures are sent to (AUTO compression method).
+	 */
+	private volatile Throughput network;
+
 	private final Object reconfigurationLOCK = new Object();
 
 	private CompressorEngineConfiguration configuration;
@@ -57,6 +100,10 @@ public class CompressorEngine implements ReConfigurable<CompressorEngineConfigur
 		listeners.remove(listener);
 	}
 
+	public void setNetwork(Throughput network) {
+		this.network = network;
+	}
+
 	public void start(int queueSize) {
 		// THREAD = 1
 		//
@@ -79,10 +126,20 @@ public class CompressorEngine implements ReConfigurable<CompressorEngineConfigur
 		// the
 		// network queue is full => too many capture (!)
 
+		this.queueSize = queueSize;
+
 		executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(queueSize));
 
 		executor.setThreadFactory(new DefaultThreadFactoryEx("CompressorEngine"));
 
+		final int parallelism = Runtime.getRuntime().availableProcessors();
+
+		if (parallelism > 1) {
+			pool = new ForkJoinPool(parallelism);
+		}
+
+		Log.info("Compressor engine parallelism [" + parallelism + "]");
+
 		executor.setRejectedExecutionHandler((runnable, executor) -> {
             if (!executor.isShutdown()) {
                 final List<Runnable> pendings = new ArrayList<>();
@@ -102,6 +159,8 @@ public class CompressorEngine implements ReConfigurable<CompressorEngineConfigur
                     }
 
                     newer.capture.mergeDirtyTiles(cpendings);
+
+                    mergedCount.addAndGet(cpendings.length);
                 }
 
                 executor.execute(newer);
@@ -128,6 +187,21 @@ public class CompressorEngine implements ReConfigurable<CompressorEngineConfigur
 	public void onRawCaptured(int id, byte[] grays) {
 	}
 
+	/**
+	 * The capture being compressed (if any) and the ones waiting.
+	 */
+	public double getOccupancy() {
+		if (executor == null) {
+			return 0.0;
+		}
+
+		return (executor.getActiveCount() + executor.getQueue().size()) / (double) (queueSize + 1);
+	}
+
+	public int getOverflowCount() {
+		return mergedCount.get();
+	}
+
 	private class MyExecutable extends Executable {
 		private final Capture capture;
 
@@ -147,9 +221,21 @@ public class CompressorEngine implements ReConfigurable<CompressorEngineConfigur
 					xreconfigured = reconfigured;
 
 					if (reconfigured) {
-						cache = xconfiguration.useCache() ? new RegularTileCache(xconfiguration.getCacheMaxSize(), xconfiguration.getCachePurgeSize())
+						cache = xconfiguration.useCache()
+								? PersistentTileCache.create(new RegularTileCache(xconfiguration.getCacheMaxSize(), xconfiguration.getCachePurgeSize()), false)
 								: new NullTileCache();
 
+						framebuffer = xconfiguration.useDelta() ? new Framebuffer() : null;
+
+						for (final Compressor compressor : compressors) {
+							if (compressor != null) {
+								compressor.release(); // the Deflater/Inflater (!)
+							}
+						}
+						Arrays.fill(compressors, null);
+
+						selector = xconfiguration.getMethod() == CompressionMethod.AUTO ? new CompressionMethodSelector() : null;
+
 						reconfigured = false;
 					}
 				}
@@ -158,9 +244,26 @@ public class CompressorEngine implements ReConfigurable<CompressorEngineConfigur
 					Log.info("Compressor engine has been reconfigured [tile:" + capture.getId() + "] " + xconfiguration);
 				}
 
-				final Compressor compressor = Compressor.get(xconfiguration.getMethod());
+				final int initialByteCount = capture.computeInitialByteCount();
 
-				final MemByteBuffer compressed = compressor.compress(cache, capture);
+				final CompressionMethod method = selector == null ? xconfiguration.getMethod() : selectMethod(initialByteCount);
+
+				if (compressors[method.ordinal()] == null) {
+					compressors[method.ordinal()] = Compressor.get(method);
+				}
+
+				final Compressor compressor = compressors[method.ordinal()];
+
+				capture.stamp(CaptureStage.COMPRESS_START);
+				final long start = System.nanoTime();
+
+				final MemByteBuffer compressed = compressor.compress(cache, framebuffer, capture, pool);
+
+				capture.stamp(CaptureStage.COMPRESS_END);
+
+				if (selector != null) {
+					selector.onCompressed(method, initialByteCount, compressed.size(), System.nanoTime() - start);
+				}
 
 				// Possibly blocking - no problem as we'll replace (and merge)
 				// in our queue
@@ -181,6 +284,17 @@ public class CompressorEngine implements ReConfigurable<CompressorEngineConfigur
 		}
 	}
 
+	private CompressionMethod selectMethod(int initialByteCount) {
+		final Throughput xnetwork = network;
+
+		final double throughput = xnetwork == null ? 0.0 : xnetwork.getThroughput();
+		final double networkOccupancy = xnetwork == null ? 0.0 : xnetwork.getOccupancy();
+
+		final double occupancy = executor.getQueue().size() / (double) queueSize; // the waiting ones (!)
+
+		return selector.select(initialByteCount, throughput, networkOccupancy, occupancy);
+	}
+
 	private void fireOnCompressed(Capture capture, CompressionMethod compressionMethod, @Nullable CompressorEngineConfiguration compressionConfiguration,
 			MemByteBuffer compressed) {
 		final List<CompressorEngineListener> xlisteners = listeners.getListeners();
@@ -16,6 +16,8 @@ public class CompressorEngineConfiguration extends Configuration {
 
 	private static final String PREF_CACHE_PURGE_SIZE = "assistant.compression.cachePurgeSize";
 
+	private static final String PREF_USE_DELTA = "assistant.compression.useDelta";
+
 	private final CompressionMethod method;
 
 	private final boolean useCache;
@@ -24,6 +26,12 @@ public class CompressorEngineConfiguration extends Configuration {
 
 	private final int purgeSize;
 
+	/**
+	 * The multi-level tiles might be sent as a delta (XOR) from their previous
+	 * content.
+	 */
+	private final boolean useDelta;
+
 	/**
 	 * Default : takes its values from the current preferences.
 	 *
@@ -39,13 +47,16 @@ public class CompressorEngineConfiguration extends Configuration {
 		this.useCache = prefs.getBooleanPreference(PREF_USE_CACHE, true);
 		this.maxSize = prefs.getIntPreference(PREF_CACHE_MAX_SIZE, RegularTileCache.DEFAULT_MAX_SIZE);
 		this.purgeSize = prefs.getIntPreference(PREF_CACHE_PURGE_SIZE, RegularTileCache.DEFAULT_PURGE_SIZE);
+
+		this.useDelta = prefs.getBooleanPreference(PREF_USE_DELTA, true);
 	}
 
-	public CompressorEngineConfiguration(CompressionMethod method, boolean useCache, int maxSize, int purgeSize) {
+	public CompressorEngineConfiguration(CompressionMethod method, boolean useCache, int maxSize, int purgeSize, boolean useDelta) {
 		this.method = method;
 		this.useCache = useCache;
 		this.maxSize = maxSize;
 		this.purgeSize = purgeSize;
+		this.useDelta = useDelta;
 	}
 
 	public CompressionMethod getMethod() {
@@ -64,6 +75,10 @@ public class CompressorEngineConfiguration extends Configuration {
 		return purgeSize;
 	}
 
+	public boolean useDelta() {
+		return useDelta;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) {
@@ -75,7 +90,7 @@ public class CompressorEngineConfiguration extends Configuration {
 
 		final CompressorEngineConfiguration that = (CompressorEngineConfiguration) o;
 
-		return maxSize == that.maxSize && purgeSize == that.purgeSize && useCache == that.useCache && method == that.method;
+		return maxSize == that.maxSize && purgeSize == that.purgeSize && useCache == that.useCache && useDelta == that.useDelta && method == that.method;
 	}
 
 	@Override
@@ -84,6 +99,7 @@ public class CompressorEngineConfiguration extends Configuration {
 		result = 31 * result + (useCache ? 1 : 0);
 		result = 31 * result + maxSize;
 		result = 31 * result + purgeSize;
+		result = 31 * result + (useDelta ? 1 : 0);
 		return result;
 	}
 
@@ -99,6 +115,7 @@ public class CompressorEngineConfiguration extends Configuration {
 			props.set(PREF_USE_CACHE, String.valueOf(useCache));
 			props.set(PREF_CACHE_MAX_SIZE, String.valueOf(maxSize));
 			props.set(PREF_CACHE_PURGE_SIZE, String.valueOf(purgeSize));
+			props.set(PREF_USE_DELTA, String.valueOf(useDelta));
 		}
 
 		Preferences.getPreferences().update(props); // atomic (!)
@@ -106,6 +123,6 @@ public class CompressorEngineConfiguration extends Configuration {
 
 	@Override
 	public String toString() {
-		return "[method:" + method + "][useCache:" + useCache + "][max:" + maxSize + "][purge:" + purgeSize + "]";
+		return "[method:" + method + "][useCache:" + useCache + "][max:" + maxSize + "][purge:" + purgeSize + "][useDelta:" + useDelta + "]";
 	}
 }
@@ -0,0 +1,13 @@
+package mpo.dayon.assisted.control;
+
+import mpo.dayon.common.event.Listener;
+
+public interface ControlListener extends Listener {
+	/**
+	 * A mouse or key event of the assistant has just been replayed on the
+	 * assisted side (e.g., the screen is about to change).
+	 * <p/>
+	 * Must not block : called from the network incoming message thread (!)
+	 */
+	void onRemoteInput();
+}
@@ -22,4 +22,9 @@ public interface NetworkControlMessageHandler extends NetworkMessageHandler {
 	 */
 	void subscribe(Subscriber listener);
 
+	/**
+	 * Notified once each mouse/key message has been handled.
+	 */
+	void addListener(ControlListener listener);
+
 }
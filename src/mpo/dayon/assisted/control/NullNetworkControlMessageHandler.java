@@ -19,4 +19,7 @@ public class NullNetworkControlMessageHandler implements NetworkControlMessageHa
 	
 	public void subscribe(Subscriber listener) {
 	}
+
+	public void addListener(ControlListener listener) {
+	}
 }
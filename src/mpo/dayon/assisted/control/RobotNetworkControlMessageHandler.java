@@ -10,6 +10,7 @@ import java.util.List;
 
 import javax.swing.KeyStroke;
 
+import mpo.dayon.common.event.Listeners;
 import mpo.dayon.common.event.Subscriber;
 import mpo.dayon.common.log.Log;
 import mpo.dayon.common.network.NetworkEngine;
@@ -20,6 +21,8 @@ public class RobotNetworkControlMessageHandler implements NetworkControlMessageH
 	private final Robot robot;
 
 	private final List<Subscriber> subscribers = new ArrayList<>();
+
+	private final Listeners<ControlListener> listeners = new Listeners<>(ControlListener.class);
 	
 	public RobotNetworkControlMessageHandler() {
 		try {
@@ -33,6 +36,10 @@ public class RobotNetworkControlMessageHandler implements NetworkControlMessageH
 		subscribers.add(subscriber);
 	}
 
+	public void addListener(ControlListener listener) {
+		listeners.add(listener);
+	}
+
 	public void shout(char bogusChar) {
 		for (Subscriber subscriber : subscribers) {
 			subscriber.digest(String.valueOf(bogusChar));
@@ -63,6 +70,8 @@ public class RobotNetworkControlMessageHandler implements NetworkControlMessageH
 			robot.mouseWheel(message.getRotations());
 		}
 		robot.mouseMove(message.getX(), message.getY());
+
+		fireOnRemoteInput();
 	}
 
 	/**
@@ -92,6 +101,14 @@ public class RobotNetworkControlMessageHandler implements NetworkControlMessageH
 				Log.warn(message.toString() +" contained an invalid keyCode for "+message.getKeyChar());
 			}
 		}
+
+		fireOnRemoteInput();
+	}
+
+	private void fireOnRemoteInput() {
+		for (final ControlListener xlistener : listeners.getListeners()) {
+			xlistener.onRemoteInput();
+		}
 	}
 
 	/**
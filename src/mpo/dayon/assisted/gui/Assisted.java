@@ -52,6 +52,8 @@ public class Assisted implements Subscriber {
 
 	private volatile CompressorEngine compressorEngine;
 
+	private NetworkControlMessageHandler controlHandler;
+
 	public Assisted() {
 	}
 
@@ -154,7 +156,7 @@ public class Assisted implements Subscriber {
 			}
 		};
 
-		final NetworkControlMessageHandler controlHandler = new RobotNetworkControlMessageHandler();
+		controlHandler = new RobotNetworkControlMessageHandler();
 
 		controlHandler.subscribe(this);
 
@@ -245,9 +247,13 @@ public class Assisted implements Subscriber {
 
 		captureEngine = new CaptureEngine(new RobotCaptureFactory());
 		captureEngine.configure(captureEngineConfiguration);
+		captureEngine.addBackpressure((NetworkAssistedEngine) engine);
+
+		controlHandler.addListener(captureEngine);
 
 		if (compressorEngine != null) {
 			captureEngine.addListener(compressorEngine);
+			captureEngine.addBackpressure(compressorEngine);
 		}
 
 		captureEngine.start();
@@ -269,10 +275,12 @@ public class Assisted implements Subscriber {
 		compressorEngine = new CompressorEngine();
 		compressorEngine.configure(compressorEngineConfiguration);
 		compressorEngine.addListener((NetworkAssistedEngine) engine);
+		compressorEngine.setNetwork((NetworkAssistedEngine) engine);
 		compressorEngine.start(1);
 
 		if (captureEngine != null) {
 			captureEngine.addListener(compressorEngine);
+			captureEngine.addBackpressure(compressorEngine);
 		}
 	}
 
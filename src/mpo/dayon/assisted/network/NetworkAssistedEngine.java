@@ -23,23 +23,27 @@ import mpo.dayon.assisted.mouse.MouseEngineListener;
 import mpo.dayon.common.buffer.MemByteBuffer;
 import mpo.dayon.common.capture.Capture;
 import mpo.dayon.common.concurrent.RunnableEx;
+import mpo.dayon.common.concurrent.Throughput;
 import mpo.dayon.common.configuration.Configurable;
 import mpo.dayon.common.log.Log;
 import mpo.dayon.common.network.NetworkEngine;
 import mpo.dayon.common.network.NetworkSender;
 import mpo.dayon.common.network.message.NetworkCaptureConfigurationMessage;
 import mpo.dayon.common.network.message.NetworkCaptureConfigurationMessageHandler;
+import mpo.dayon.common.network.message.NetworkClockMessage;
 import mpo.dayon.common.network.message.NetworkCompressorConfigurationMessage;
 import mpo.dayon.common.network.message.NetworkCompressorConfigurationMessageHandler;
 import mpo.dayon.common.network.message.NetworkKeyControlMessage;
 import mpo.dayon.common.network.message.NetworkMessage;
 import mpo.dayon.common.network.message.NetworkMessageType;
 import mpo.dayon.common.network.message.NetworkMouseControlMessage;
+import mpo.dayon.common.network.message.NetworkTileStoreMessage;
 import mpo.dayon.common.security.CustomTrustManager;
 import mpo.dayon.common.squeeze.CompressionMethod;
+import mpo.dayon.common.squeeze.PersistentTileStore;
 
 public class NetworkAssistedEngine extends NetworkEngine
-		implements Configurable<NetworkAssistedEngineConfiguration>, CompressorEngineListener, MouseEngineListener {
+		implements Configurable<NetworkAssistedEngineConfiguration>, CompressorEngineListener, MouseEngineListener, Throughput {
 	private NetworkAssistedEngineConfiguration configuration;
 
 	private final NetworkCaptureConfigurationMessageHandler captureConfigurationHandler;
@@ -52,7 +56,7 @@ public class NetworkAssistedEngine extends NetworkEngine
 
 	private DataInputStream in;
 
-	private NetworkSender sender;
+	private volatile NetworkSender sender;
 
 	public NetworkAssistedEngine(NetworkCaptureConfigurationMessageHandler captureConfigurationHandler,
 			NetworkCompressorConfigurationMessageHandler compressorConfigurationHandler, NetworkControlMessageHandler controlHandler) {
@@ -122,6 +126,22 @@ public class NetworkAssistedEngine extends NetworkEngine
 				break;
 			}
 
+			case TILE_STORE: {
+				final NetworkTileStoreMessage message = NetworkTileStoreMessage.unmarshall(in);
+				final PersistentTileStore store = PersistentTileStore.get(false);
+
+				if (store != null) {
+					store.setShared(message.getCacheIds());
+				}
+				break;
+			}
+
+			case CLOCK: {
+				final NetworkClockMessage message = NetworkClockMessage.unmarshall(in);
+				sender.sendClockReply(message, System.currentTimeMillis());
+				break;
+			}
+
 			default:
 				throw new IOException("Unsupported message type [" + type + "]!");
 			}
@@ -157,4 +177,22 @@ public class NetworkAssistedEngine extends NetworkEngine
 	public boolean onLocationUpdated(Point location) {
 		return sender == null || sender.sendMouseLocation(location);
 	}
+
+	public double getOccupancy() {
+		final NetworkSender xsender = sender;
+
+		return xsender == null ? 0.0 : xsender.getOccupancy();
+	}
+
+	public int getOverflowCount() {
+		final NetworkSender xsender = sender;
+
+		return xsender == null ? 0 : xsender.getOverflowCount();
+	}
+
+	public double getThroughput() {
+		final NetworkSender xsender = sender;
+
+		return xsender == null ? 0.0 : xsender.getThroughput();
+	}
 }
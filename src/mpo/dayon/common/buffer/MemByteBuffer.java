@@ -106,6 +106,14 @@ public class MemByteBuffer extends OutputStream {
 		write((val >>> 8) & 0xFF, val & 0xFF);
 	}
 
+	/**
+	 * Equivalent to the DataOutputStream version (!)
+	 */
+	public final void writeLong(long val) {
+		writeInt((int) (val >>> 32));
+		writeInt((int) val);
+	}
+
 	/**
 	 * Equivalent to the DataOutputStream version (!)
 	 */
@@ -1,5 +1,6 @@
 package mpo.dayon.common.capture;
 
+import java.awt.Rectangle;
 import java.awt.Transparency;
 import java.awt.color.ColorSpace;
 import java.awt.image.BufferedImage;
@@ -20,6 +21,8 @@ import mpo.dayon.common.log.Log;
 import mpo.dayon.common.utils.Pair;
 
 public class Capture {
+	public static final Rectangle[] NO_VIDEO_REGION = new Rectangle[0];
+
 	private final int id;
 
 	private final boolean reset;
@@ -34,6 +37,14 @@ public class Capture {
 	 */
 	private final AtomicInteger merged;
 
+	/**
+	 * The number of rows of the screen the capture engine did not have to
+	 * look at (i.e., scanline prefilter) since the previous capture.
+	 *
+	 * @see #mergeDirtyTiles(Capture[])
+	 */
+	private final AtomicInteger skippedRows;
+
 	private final int width;
 
 	private final int height;
@@ -44,12 +55,58 @@ public class Capture {
 
 	private final CaptureTile[] dirty;
 
-	public Capture(int captureId, boolean reset, int skipped, int merged, int width, int height, int tWidth, int tHeight, CaptureTile[] dirty) {
+	/**
+	 * Applied before the dirty tiles.
+	 *
+	 * @see #mergeDirtyTiles(Capture[])
+	 */
+	private CopyRect[] copies;
+
+	/**
+	 * The tiles covered by the copies (assisted side only) : the copies are
+	 * relative to the previous capture so a merged capture is going to send
+	 * them as regular dirty tiles.
+	 */
+	@Nullable
+	private CaptureTile[] copied;
+
+	/**
+	 * The gray screen of the first capture sent after the tile geometry has
+	 * been adapted (assisted side only) : the dirty tiles of an older capture
+	 * (previous geometry) are then merged as the tiles covering them.
+	 *
+	 * @see #mergeDirtyTiles(Capture[])
+	 */
+	@Nullable
+	private byte[] retileSource;
+
+	/**
+	 * The regions of the screen changing constantly (e.g., video) : refreshed
+	 * less often by the assisted (debugging purpose).
+	 */
+	private final Rectangle[] videoRegions;
+
+	/**
+	 * Millis per capture stage (0 : not time-stamped); the assisted stages are
+	 * converted to the assistant clock once received.
+	 *
+	 * @see CaptureStage
+	 */
+	private final long[] timestamps = new long[CaptureStage.values().length];
+
+	public Capture(int captureId, boolean reset, int skipped, int merged, int skippedRows, int width, int height, int tWidth, int tHeight,
+			CaptureTile[] dirty) {
+		this(captureId, reset, skipped, merged, skippedRows, width, height, tWidth, tHeight, dirty, CopyRect.NONE, null, NO_VIDEO_REGION);
+	}
+
+	public Capture(int captureId, boolean reset, int skipped, int merged, int skippedRows, int width, int height, int tWidth, int tHeight,
+			CaptureTile[] dirty, CopyRect[] copies, @Nullable CaptureTile[] copied, Rectangle[] videoRegions) {
 		this.id = captureId;
 		this.reset = reset;
 
 		this.skipped = new AtomicInteger(skipped);
 		this.merged = new AtomicInteger(merged);
+		this.skippedRows = new AtomicInteger(skippedRows);
 
 		this.width = width;
 		this.height = height;
@@ -58,6 +115,11 @@ public class Capture {
 		this.tHeight = tHeight;
 
 		this.dirty = dirty;
+
+		this.copies = copies;
+		this.copied = copied;
+
+		this.videoRegions = videoRegions;
 	}
 
 	public int getId() {
@@ -76,6 +138,10 @@ public class Capture {
 		return merged.get();
 	}
 
+	public int getSkippedRows() {
+		return skippedRows.get();
+	}
+
 	/**
 	 * @see #computeInitialByteCount()
 	 */
@@ -98,7 +164,7 @@ public class Capture {
 	 * amount as I want to see the impact on the compression of using less
 	 * number of gray levels.
 	 */
-	private int computeInitialByteCount() {
+	public int computeInitialByteCount() {
 
 		return Arrays.stream(dirty).filter(Objects::nonNull).mapToInt(tile -> tile.getCapture().size()).sum();
 	}
@@ -128,23 +194,89 @@ public class Capture {
 		return dirty;
 	}
 
+	public CopyRect[] getCopies() {
+		return copies;
+	}
+
+	/**
+	 * @see #copied
+	 */
+	@Nullable
+	public CaptureTile[] getCopiedTiles() {
+		return copied;
+	}
+
+	public Rectangle[] getVideoRegions() {
+		return videoRegions;
+	}
+
+	/**
+	 * @see #retileSource
+	 */
+	public void setRetileSource(byte[] gray) {
+		this.retileSource = gray;
+	}
+
+	public void stamp(CaptureStage stage) {
+		timestamps[stage.ordinal()] = System.currentTimeMillis();
+	}
+
+	public void stamp(CaptureStage stage, long timestamp) {
+		timestamps[stage.ordinal()] = timestamp;
+	}
+
+	public long getTimestamp(CaptureStage stage) {
+		return timestamps[stage.ordinal()];
+	}
+
+	/**
+	 * @see #timestamps
+	 */
+	public long[] getTimestamps() {
+		return timestamps;
+	}
+
 	public void mergeDirtyTiles(Capture[] olders) {
 		int xskipped = 0;
 		int xmerged = 0;
+		int xskippedRows = 0;
+
+		flattenCopies();
 
 		for (final Capture older : olders) {
+			older.flattenCopies();
 			doMergeDirtyTiles(older);
 
 			xskipped += older.skipped.get();
 			xmerged += older.merged.get();
+			xskippedRows += older.skippedRows.get();
 		}
 
 		skipped.addAndGet(xskipped);
 		merged.set(1 + xmerged);
+		skippedRows.addAndGet(xskippedRows);
 
 		Log.warn(String.format("Merged [id:%d] [count:%d] [skipped:%d][merged:%d]", id, olders.length, skipped.get(), merged.get()));
 	}
 
+	/**
+	 * The copied tiles become regular dirty tiles.
+	 */
+	private void flattenCopies() {
+		if (copied == null) {
+			return;
+		}
+
+		for (int idx = 0; idx < dirty.length; idx++) {
+			if (copied[idx] != null) {
+				dirty[idx] = copied[idx];
+			}
+		}
+
+		copies = CopyRect.NONE;
+		copied = null;
+	}
+
 	/**
 	 * <pre>
 	 * [ this ] [+] [ older ]
@@ -154,13 +286,15 @@ public class Capture {
 	 * </pre>
 	 */
 	private void doMergeDirtyTiles(Capture older) {
-		// The only way the tile 'length' may change is when the capture engine
-		// has been re-configured.
-		// In that case (for the sake of simplicity) a FULL capture will be
-		// sent.
+		// The only way the tile 'length' (or geometry) may change is when the
+		// capture engine has been re-configured (FULL capture) or has adapted
+		// the tiles (retile source).
 
-		if (dirty.length != older.dirty.length) {
-			return; // we're keeping the newest (FULL capture anyway)
+		if (dirty.length != older.dirty.length || tWidth != older.tWidth || tHeight != older.tHeight) {
+			if (retileSource != null) {
+				doRetileDirtyTiles(older);
+			}
+			return; // otherwise we're keeping the newest (FULL capture anyway)
 		}
 
 		for (int idx = 0; idx < dirty.length; idx++) {
@@ -173,6 +307,51 @@ public class Capture {
 		}
 	}
 
+	/**
+	 * The tiles (this geometry) covering the dirty tiles of the older capture
+	 * (previous geometry) : a tile not dirty in this capture is the same as
+	 * in the older capture's frame and is taken from the retile source.
+	 */
+	private void doRetileDirtyTiles(Capture older) {
+		final TileHasher hasher = TileHasher.get();
+		final int tilesPerRow = (width + tWidth - 1) / tWidth;
+
+		for (final CaptureTile olderTile : older.dirty) {
+			if (olderTile == null) {
+				continue;
+			}
+
+			final int fromRow = olderTile.getY() / tHeight;
+			final int toRow = (olderTile.getY() + olderTile.getHeight() - 1) / tHeight;
+
+			final int fromColumn = olderTile.getX() / tWidth;
+			final int toColumn = (olderTile.getX() + olderTile.getWidth() - 1) / tWidth;
+
+			for (int row = fromRow; row <= toRow; row++) {
+				for (int column = fromColumn; column <= toColumn; column++) {
+					final int idx = row * tilesPerRow + column;
+
+					if (dirty[idx] != null) {
+						continue;
+					}
+
+					final int tx = column * tWidth;
+					final int ty = row * tHeight;
+					final int tw = Math.min(width - tx, tWidth);
+					final int th = Math.min(height - ty, tHeight);
+
+					final byte[] data = new byte[tw * th];
+
+					for (int y = 0; y < th; y++) {
+						System.arraycopy(retileSource, (ty + y) * width + tx, data, y * tw, tw);
+					}
+
+					dirty[idx] = new CaptureTile(id, idx, hasher.hash(data, tw, th), tx, ty, tw, th, data);
+				}
+			}
+		}
+	}
+
 	/**
 	 * Tile-rectangle buffer to screen-rectangle buffer.
 	 */
@@ -181,6 +360,19 @@ public class Capture {
 
 		if (prevBuffer != null && width == prevWidth && height == prevHeight) {
 			System.arraycopy(prevBuffer, 0, buffer, 0, buffer.length);
+
+			// from the previous buffer : the copies might overlap (!)
+			for (final CopyRect copy : copies) {
+				int srcPos = copy.getSrcY() * width + copy.getSrcX();
+				int destPos = copy.getY() * width + copy.getX();
+
+				for (int row = 0; row < copy.getHeight(); row++) {
+					System.arraycopy(prevBuffer, srcPos, buffer, destPos, copy.getWidth());
+
+					srcPos += width;
+					destPos += width;
+				}
+			}
 		}
 
 		for (final CaptureTile tile : dirty) {
@@ -0,0 +1,29 @@
+package mpo.dayon.common.capture;
+
+/**
+ * =====================================================================================================================
+ * How the capture engine is detecting the dirty tiles; the ordinal is
+ * persisted within the preferences.
+ * =====================================================================================================================
+ */
+public enum CaptureDiff {
+	/**
+	 * The whole screen is converted into gray levels and then the checksum of
+	 * each tile is compared to the previous one.
+	 */
+	CHECKSUM,
+
+	/**
+	 * The checksum of each tile of the raw RGB screen is compared to the
+	 * previous one : only the dirty tiles are then converted into gray levels
+	 * (mostly static screens).
+	 */
+	RGB_CHECKSUM,
+
+	/**
+	 * Each tile is compared (byte per byte) to the previous gray capture kept
+	 * in memory : exact result (i.e., no checksum collision) at the cost of one
+	 * byte per pixel of the screen.
+	 */
+	EXACT,
+}
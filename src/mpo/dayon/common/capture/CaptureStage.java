@@ -0,0 +1,47 @@
+package mpo.dayon.common.capture;
+
+/**
+ * The points of the capture pipeline a capture is time-stamped at (capture to
+ * display latency) : from the assisted grabbing the screen until the
+ * assistant painting it.
+ */
+public enum CaptureStage {
+	/**
+	 * Assisted : the screen has been grabbed.
+	 */
+	GRAB,
+
+	/**
+	 * Assisted : the dirty tiles have been computed.
+	 */
+	DIFF,
+
+	COMPRESS_START,
+
+	COMPRESS_END,
+
+	/**
+	 * Assisted : handed to the network sender.
+	 */
+	ENQUEUE,
+
+	/**
+	 * Assisted : written to the socket (last assisted stage).
+	 */
+	WRITE,
+
+	/**
+	 * Assistant : read from the socket (first assistant stage).
+	 */
+	RECEIVE,
+
+	DECOMPRESS,
+
+	PAINT;
+
+	/**
+	 * The stages time-stamped by the assisted (carried by the capture
+	 * message).
+	 */
+	public static final int ASSISTED_STAGE_COUNT = WRITE.ordinal() + 1;
+}
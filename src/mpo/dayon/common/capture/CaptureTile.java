@@ -1,8 +1,6 @@
 package mpo.dayon.common.capture;
 
 import java.util.Arrays;
-import java.util.zip.Adler32;
-import java.util.zip.Checksum;
 
 import mpo.dayon.common.buffer.MemByteBuffer;
 
@@ -29,9 +27,11 @@ public class CaptureTile {
 
 	/**
 	 * Created from a cache - testing purpose - I've to identify that kind of
-	 * tile as the Adler32 is not perfect and from time to time I've a few
-	 * erroneous pixels when comparing initial capture (coming from the
+	 * tile as the initial Adler32 was not perfect and from time to time I had
+	 * a few erroneous pixels when comparing initial capture (coming from the
 	 * assisted) to the decompressed captures in the assistant.
+	 *
+	 * @see TileHasher
 	 */
 	private final boolean fromCache;
 
@@ -71,9 +71,9 @@ public class CaptureTile {
 		this.captureId = captureId;
 
 		this.id = id;
-		this.checksum = computeChecksum(capture.getInternal(), 0, capture.size()); // cache
-																					// usage
-																					// (!)
+		this.checksum = TileHasher.get().hash(capture.getInternal(), xywh.w, xywh.h); // cache
+																						// usage
+																						// (!)
 
 		this.x = xywh.x;
 		this.y = xywh.y;
@@ -142,14 +142,6 @@ public class CaptureTile {
 		this.fromCache = true;
 	}
 
-	public static long computeChecksum(byte[] data, int offset, int len) {
-		final Checksum checksum = new Adler32();
-		// final Checksum checksum = new CRC32(); -- more CPU - Adler32 seems
-		// quite good until now ...
-		checksum.update(data, offset, len);
-		return checksum.getValue();
-	}
-
 	public int getCaptureId() {
 		return captureId;
 	}
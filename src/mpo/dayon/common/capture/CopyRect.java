@@ -0,0 +1,60 @@
+package mpo.dayon.common.capture;
+
+/**
+ * A rectangle of the previous capture copied (as is) to another location of
+ * the screen (e.g., scrolling, window move) : the copies of a capture are
+ * applied (from the previous capture) before its dirty tiles.
+ */
+public class CopyRect {
+	public static final CopyRect[] NONE = new CopyRect[0];
+
+	private final int x;
+
+	private final int y;
+
+	private final int width;
+
+	private final int height;
+
+	private final int srcX;
+
+	private final int srcY;
+
+	public CopyRect(int x, int y, int width, int height, int srcX, int srcY) {
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.height = height;
+		this.srcX = srcX;
+		this.srcY = srcY;
+	}
+
+	public int getX() {
+		return x;
+	}
+
+	public int getY() {
+		return y;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getSrcX() {
+		return srcX;
+	}
+
+	public int getSrcY() {
+		return srcY;
+	}
+
+	@Override
+	public String toString() {
+		return "[" + srcX + "," + srcY + " -> " + x + "," + y + " " + width + "x" + height + "]";
+	}
+}
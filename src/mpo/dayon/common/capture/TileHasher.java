@@ -0,0 +1,47 @@
+package mpo.dayon.common.capture;
+
+/**
+ * The 64 bits hash of the tiles : used to detect the dirty tiles within the
+ * assisted and as the cache id of the tiles in both sides (i.e., must be the
+ * same implementation in both sides).
+ * <p/>
+ * The tile-rectangle is read straight from a screen-rectangle buffer (row per
+ * row); hashing a tile-rectangle buffer is the same as hashing the
+ * screen-rectangle buffer it has been copied from : no allocation required.
+ */
+public abstract class TileHasher {
+	private static final TileHasher DEFAULT = new XxHashTileHasher();
+
+	TileHasher() {
+	}
+
+	public static TileHasher get() {
+		return DEFAULT;
+	}
+
+	/**
+	 * @param offset
+	 *            the position of the top-left pixel of the tile
+	 * @param stride
+	 *            the width of the buffer (i.e., scanline stride)
+	 * @param width
+	 *            the width of the tile
+	 * @param height
+	 *            the height of the tile
+	 */
+	public abstract long hash(byte[] data, int offset, int stride, int width, int height);
+
+	/**
+	 * RGB version (one int per pixel).
+	 *
+	 * @see #hash(byte[], int, int, int, int)
+	 */
+	public abstract long hash(int[] data, int offset, int stride, int width, int height);
+
+	/**
+	 * A tile-rectangle buffer.
+	 */
+	public long hash(byte[] data, int width, int height) {
+		return hash(data, 0, width, width, height);
+	}
+}
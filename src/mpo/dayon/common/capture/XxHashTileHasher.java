@@ -0,0 +1,146 @@
+package mpo.dayon.common.capture;
+
+/**
+ * A row-aware variant of xxHash64 : each row of the tile is consumed by
+ * stripes of 32 bytes spread over 4 independent accumulators, the remaining
+ * bytes of the row going into a 5th one; the whole being merged and mixed as
+ * in the original xxHash64.
+ * <p/>
+ * Not the reference xxHash64 values (the rows are not concatenated) but the
+ * same distribution and no allocation at all.
+ * <p/>
+ * The tile geometry is part of the hash : the same bytes as a 16x32 or a
+ * 32x16 tile (or a 16x16 and a 32x8 edge tile) are not the same cache id.
+ */
+final class XxHashTileHasher extends TileHasher {
+	private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+
+	private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+
+	private static final long PRIME64_3 = 0x165667B19E3779F9L;
+
+	private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+
+	private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+	XxHashTileHasher() {
+	}
+
+	@Override
+	public long hash(byte[] data, int offset, int stride, int width, int height) {
+		long v1 = PRIME64_1 + PRIME64_2;
+		long v2 = PRIME64_2;
+		long v3 = 0;
+		long v4 = -PRIME64_1;
+
+		long tail = PRIME64_5;
+
+		int pos = offset;
+
+		for (int row = 0; row < height; row++) {
+			final int end = pos + width;
+
+			int idx = pos;
+
+			for (; idx + 32 <= end; idx += 32) {
+				v1 = round(v1, getLong(data, idx));
+				v2 = round(v2, getLong(data, idx + 8));
+				v3 = round(v3, getLong(data, idx + 16));
+				v4 = round(v4, getLong(data, idx + 24));
+			}
+
+			for (; idx + 8 <= end; idx += 8) {
+				tail ^= round(0, getLong(data, idx));
+				tail = Long.rotateLeft(tail, 27) * PRIME64_1 + PRIME64_4;
+			}
+
+			for (; idx < end; idx++) {
+				tail ^= (data[idx] & 0xFF) * PRIME64_5;
+				tail = Long.rotateLeft(tail, 11) * PRIME64_1;
+			}
+
+			pos += stride;
+		}
+
+		return finish(v1, v2, v3, v4, tail, width, height, 1);
+	}
+
+	@Override
+	public long hash(int[] data, int offset, int stride, int width, int height) {
+		long v1 = PRIME64_1 + PRIME64_2;
+		long v2 = PRIME64_2;
+		long v3 = 0;
+		long v4 = -PRIME64_1;
+
+		long tail = PRIME64_5;
+
+		int pos = offset;
+
+		for (int row = 0; row < height; row++) {
+			final int end = pos + width;
+
+			int idx = pos;
+
+			for (; idx + 8 <= end; idx += 8) {
+				v1 = round(v1, getLong(data, idx));
+				v2 = round(v2, getLong(data, idx + 2));
+				v3 = round(v3, getLong(data, idx + 4));
+				v4 = round(v4, getLong(data, idx + 6));
+			}
+
+			for (; idx < end; idx++) {
+				tail ^= (data[idx] & 0xFFFFFFFFL) * PRIME64_1;
+				tail = Long.rotateLeft(tail, 23) * PRIME64_2 + PRIME64_3;
+			}
+
+			pos += stride;
+		}
+
+		return finish(v1, v2, v3, v4, tail, width, height, 4);
+	}
+
+	private static long round(long acc, long input) {
+		acc += input * PRIME64_2;
+		acc = Long.rotateLeft(acc, 31);
+		return acc * PRIME64_1;
+	}
+
+	private static long merge(long acc, long val) {
+		acc ^= round(0, val);
+		return acc * PRIME64_1 + PRIME64_4;
+	}
+
+	private static long finish(long v1, long v2, long v3, long v4, long tail, int width, int height, int bytesPerPixel) {
+		long hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+
+		hash = merge(hash, v1);
+		hash = merge(hash, v2);
+		hash = merge(hash, v3);
+		hash = merge(hash, v4);
+
+		hash = merge(hash, ((long) width << 32) | height); // geometry (!)
+
+		hash += (long) bytesPerPixel * width * height;
+		hash ^= tail;
+
+		hash ^= hash >>> 33;
+		hash *= PRIME64_2;
+		hash ^= hash >>> 29;
+		hash *= PRIME64_3;
+		hash ^= hash >>> 32;
+
+		return hash;
+	}
+
+	/**
+	 * Little endian.
+	 */
+	private static long getLong(byte[] data, int pos) {
+		return (data[pos] & 0xFFL) | (data[pos + 1] & 0xFFL) << 8 | (data[pos + 2] & 0xFFL) << 16 | (data[pos + 3] & 0xFFL) << 24
+				| (data[pos + 4] & 0xFFL) << 32 | (data[pos + 5] & 0xFFL) << 40 | (data[pos + 6] & 0xFFL) << 48 | (data[pos + 7] & 0xFFL) << 56;
+	}
+
+	private static long getLong(int[] data, int pos) {
+		return (data[pos] & 0xFFFFFFFFL) | ((long) data[pos + 1]) << 32;
+	}
+}
@@ -0,0 +1,18 @@
+package mpo.dayon.common.concurrent;
+
+/**
+ * A processing stage telling how busy it is : allows for the stages feeding
+ * it to slow down (e.g., capture pacing).
+ */
+public interface Backpressure {
+	/**
+	 * @return within [0..1] (1 : no room left for a new item)
+	 */
+	double getOccupancy();
+
+	/**
+	 * @return the number of items merged or dropped so far (i.e., sent too
+	 *         early)
+	 */
+	int getOverflowCount();
+}
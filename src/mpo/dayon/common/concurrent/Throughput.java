@@ -0,0 +1,13 @@
+package mpo.dayon.common.concurrent;
+
+/**
+ * A processing stage telling how fast it is going as well (e.g., network) :
+ * allows for the stages feeding it to trade CPU for bytes (e.g., compression
+ * method).
+ */
+public interface Throughput extends Backpressure {
+	/**
+	 * @return bytes per second (0 : unknown yet)
+	 */
+	double getThroughput();
+}
@@ -8,6 +8,7 @@ import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jetbrains.annotations.Nullable;
 
@@ -15,27 +16,59 @@ import mpo.dayon.assisted.capture.CaptureEngineConfiguration;
 import mpo.dayon.assisted.compressor.CompressorEngineConfiguration;
 import mpo.dayon.common.buffer.MemByteBuffer;
 import mpo.dayon.common.capture.Capture;
+import mpo.dayon.common.capture.CaptureStage;
 import mpo.dayon.common.concurrent.DefaultThreadFactoryEx;
 import mpo.dayon.common.concurrent.Executable;
+import mpo.dayon.common.concurrent.Throughput;
 import mpo.dayon.common.error.FatalErrorHandler;
 import mpo.dayon.common.network.message.NetworkCaptureConfigurationMessage;
 import mpo.dayon.common.network.message.NetworkCaptureMessage;
+import mpo.dayon.common.network.message.NetworkClockMessage;
 import mpo.dayon.common.network.message.NetworkCompressorConfigurationMessage;
 import mpo.dayon.common.network.message.NetworkHelloMessage;
 import mpo.dayon.common.network.message.NetworkKeyControlMessage;
 import mpo.dayon.common.network.message.NetworkMessage;
+import mpo.dayon.common.network.message.NetworkMessageType;
 import mpo.dayon.common.network.message.NetworkMouseControlMessage;
 import mpo.dayon.common.network.message.NetworkMouseLocationMessage;
+import mpo.dayon.common.network.message.NetworkTileStoreMessage;
+import mpo.dayon.common.squeeze.BloomFilter;
 import mpo.dayon.common.squeeze.CompressionMethod;
+import mpo.dayon.common.squeeze.PersistentTileStore;
 import mpo.dayon.common.version.Version;
 
-public class NetworkSender {
+public class NetworkSender implements Throughput {
+	/**
+	 * Weight of the last capture sent in the smoothed throughput.
+	 */
+	private static final double THROUGHPUT_WEIGHT = 0.2;
+
 	private final DataOutputStream out;
 
 	private ThreadPoolExecutor executor;
 
 	private Semaphore semaphore;
 
+	private int queueSize;
+
+	/**
+	 * The mouse locations not sent (the network being busy).
+	 */
+	private final AtomicInteger droppedCount = new AtomicInteger();
+
+	private final Object throughputLOCK = new Object();
+
+	/**
+	 * Smoothed size of the captures sent (bytes).
+	 */
+	private double sentBytes;
+
+	/**
+	 * Smoothed time spent writing them (nanos) : blocking once the socket
+	 * buffers are full (i.e., network speed).
+	 */
+	private double sentNanos;
+
 	public NetworkSender(DataOutputStream out) {
 		this.out = out;
 	}
@@ -55,6 +88,36 @@ public class NetworkSender {
 		executor.setThreadFactory(new DefaultThreadFactoryEx("NetworkSender"));
 
 		semaphore = new Semaphore(queueSize, true);
+
+		this.queueSize = queueSize;
+	}
+
+	/**
+	 * The messages being sent or waiting to be sent (semaphore).
+	 */
+	public double getOccupancy() {
+		if (semaphore == null) {
+			return 0.0;
+		}
+
+		return (queueSize - semaphore.availablePermits()) / (double) queueSize;
+	}
+
+	public int getOverflowCount() {
+		return droppedCount.get();
+	}
+
+	public double getThroughput() {
+		synchronized (throughputLOCK) {
+			return sentNanos == 0.0 ? 0.0 : sentBytes * 1000000000.0 / sentNanos;
+		}
+	}
+
+	private void onSent(int bytes, long nanos) {
+		synchronized (throughputLOCK) {
+			sentBytes = THROUGHPUT_WEIGHT * bytes + (1.0 - THROUGHPUT_WEIGHT) * sentBytes;
+			sentNanos = THROUGHPUT_WEIGHT * Math.max(1, nanos) + (1.0 - THROUGHPUT_WEIGHT) * sentNanos;
+		}
 	}
 
 	public void cancel() {
@@ -69,7 +132,17 @@ public class NetworkSender {
 	public void sendHello() {
 		final Version version = Version.get();
 
-		send(true, new NetworkHelloMessage(version.getMajor(), version.getMinor()));
+		final PersistentTileStore store = PersistentTileStore.get(false);
+		final BloomFilter summary;
+
+		if (store != null) {
+			store.setShared(new long[0]); // new connection : until the assistant answers (!)
+			summary = store.summarize();
+		} else {
+			summary = BloomFilter.EMPTY;
+		}
+
+		send(true, new NetworkHelloMessage(version.getMajor(), version.getMinor(), System.currentTimeMillis(), summary));
 	}
 
 	/**
@@ -79,7 +152,9 @@ public class NetworkSender {
 	 */
 	public void sendCapture(Capture capture, CompressionMethod compressionMethod, @Nullable CompressorEngineConfiguration compressionConfiguration,
 			MemByteBuffer compressed) {
-		send(true, new NetworkCaptureMessage(capture.getId(), compressionMethod, compressionConfiguration, compressed));
+		capture.stamp(CaptureStage.ENQUEUE);
+
+		send(true, new NetworkCaptureMessage(capture.getId(), compressionMethod, compressionConfiguration, compressed, capture.getTimestamps().clone()));
 	}
 
 	/**
@@ -95,6 +170,7 @@ public class NetworkSender {
 		// engine in between).
 
 		if (!semaphore.tryAcquire()) {
+			droppedCount.incrementAndGet();
 			return false;
 		}
 
@@ -139,6 +215,36 @@ public class NetworkSender {
 		send(true, message);
 	}
 
+	/**
+	 * Might block (!)
+	 * <p/>
+	 * Assistant 2 assited.
+	 */
+	public void sendTileStore(long[] cacheIds) {
+		send(true, new NetworkTileStoreMessage(cacheIds));
+	}
+
+	/**
+	 * Might block (!)
+	 * <p/>
+	 * Assistant 2 assited.
+	 */
+	public void sendClockRequest() {
+		send(true, NetworkClockMessage.request());
+	}
+
+	/**
+	 * Might block (!)
+	 * <p/>
+	 * Assisted 2 assitant.
+	 *
+	 * @param received
+	 *            the assisted clock when the request has been read
+	 */
+	public void sendClockReply(NetworkClockMessage request, long received) {
+		send(true, NetworkClockMessage.reply(request, received));
+	}
+
 	private void send(boolean acquireSemaphore, NetworkMessage message) {
 		try {
 			if (acquireSemaphore) {
@@ -156,7 +262,7 @@ public class NetworkSender {
 		}
 	}
 
-	private static class MyExecutable extends Executable {
+	private class MyExecutable extends Executable {
 		private final DataOutputStream out;
 
 		private final NetworkMessage message;
@@ -169,9 +275,15 @@ public class NetworkSender {
 		}
 
 		protected void execute() throws Exception {
+			final long start = System.nanoTime();
+
 			NetworkMessage.marshallMagicNumber(out);
 			message.marshall(out);
 			out.flush();
+
+			if (message.getType() == NetworkMessageType.CAPTURE) {
+				onSent(1/* magic-number */ + message.getWireSize(), System.nanoTime() - start);
+			}
 		}
 	}
 
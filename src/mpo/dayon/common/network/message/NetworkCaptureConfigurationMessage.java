@@ -5,6 +5,7 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 
 import mpo.dayon.assisted.capture.CaptureEngineConfiguration;
+import mpo.dayon.common.capture.CaptureDiff;
 import mpo.dayon.common.capture.Gray8Bits;
 
 public class NetworkCaptureConfigurationMessage extends NetworkMessage {
@@ -27,7 +28,10 @@ public class NetworkCaptureConfigurationMessage extends NetworkMessage {
 	 * payload ...
 	 */
 	public int getWireSize() {
-		return 6; // type (byte) + quantization (byte) + tick (int)
+		// type (byte) + quantization (byte) + tick (int) + parallelism (int) + diff (byte)
+		// + tile width/height (short) + adaptive (byte) + pipelined (byte) + min tick (int) + idle frame count (int)
+		// + burst window (int) + shift detection (byte) + video threshold/refresh (int) + video quantization (byte)
+		return 39;
 	}
 
 	public void marshall(DataOutputStream out) throws IOException {
@@ -35,17 +39,50 @@ public class NetworkCaptureConfigurationMessage extends NetworkMessage {
 
 		marshallEnum(out, Gray8Bits.class, configuration.getCaptureQuantization());
 		out.writeInt(configuration.getCaptureTick());
+		out.writeInt(configuration.getCaptureParallelism());
+		marshallEnum(out, CaptureDiff.class, configuration.getCaptureDiff());
+		out.writeShort(configuration.getCaptureTileWidth());
+		out.writeShort(configuration.getCaptureTileHeight());
+		out.writeBoolean(configuration.isCaptureTileAdaptive());
+		out.writeBoolean(configuration.isCapturePipelined());
+		out.writeInt(configuration.getCaptureMinTick());
+		out.writeInt(configuration.getCaptureIdleFrameCount());
+		out.writeInt(configuration.getCaptureBurstWindow());
+		out.writeBoolean(configuration.isCaptureShiftDetection());
+		out.writeInt(configuration.getCaptureVideoThreshold());
+		out.writeInt(configuration.getCaptureVideoRefresh());
+		marshallEnum(out, Gray8Bits.class, configuration.getCaptureVideoQuantization());
 	}
 
 	public static NetworkCaptureConfigurationMessage unmarshall(DataInputStream in) throws IOException {
 		final Gray8Bits quantization = unmarshallEnum(in, Gray8Bits.class);
 		final int tick = in.readInt();
+		final int parallelism = in.readInt();
+		final CaptureDiff diff = unmarshallEnum(in, CaptureDiff.class);
+		final int tileWidth = in.readShort();
+		final int tileHeight = in.readShort();
+		final boolean tileAdaptive = in.readBoolean();
+		final boolean pipelined = in.readBoolean();
+		final int minTick = in.readInt();
+		final int idleFrameCount = in.readInt();
+		final int burstWindow = in.readInt();
+		final boolean shiftDetection = in.readBoolean();
+		final int videoThreshold = in.readInt();
+		final int videoRefresh = in.readInt();
+		final Gray8Bits videoQuantization = unmarshallEnum(in, Gray8Bits.class);
 
-		return new NetworkCaptureConfigurationMessage(new CaptureEngineConfiguration(tick, quantization));
+		return new NetworkCaptureConfigurationMessage(new CaptureEngineConfiguration(tick, quantization, parallelism, diff, tileWidth, tileHeight,
+				tileAdaptive, pipelined, minTick, idleFrameCount, burstWindow, shiftDetection, videoThreshold, videoRefresh,
+				videoQuantization));
 	}
 
 	public String toString() {
-		return String.format("[quantization:%s] [tick:%d]", configuration.getCaptureQuantization(), configuration.getCaptureTick());
+		return String.format("[quantization:%s] [tick:%d] [parallelism:%d] [diff:%s] [tile:%dx%d] [adaptive:%s] [pipelined:%s] [minTick:%d] [idle:%d] [burst:%d] [shift:%s] [video:%d%%/%d/%s]",
+				configuration.getCaptureQuantization(), configuration.getCaptureTick(), configuration.getCaptureParallelism(), configuration.getCaptureDiff(),
+				configuration.getCaptureTileWidth(), configuration.getCaptureTileHeight(), configuration.isCaptureTileAdaptive(),
+				configuration.isCapturePipelined(), configuration.getCaptureMinTick(), configuration.getCaptureIdleFrameCount(),
+				configuration.getCaptureBurstWindow(), configuration.isCaptureShiftDetection(), configuration.getCaptureVideoThreshold(),
+				configuration.getCaptureVideoRefresh(), configuration.getCaptureVideoQuantization());
 	}
 
 }
@@ -8,10 +8,16 @@ import org.jetbrains.annotations.Nullable;
 
 import mpo.dayon.assisted.compressor.CompressorEngineConfiguration;
 import mpo.dayon.common.buffer.MemByteBuffer;
+import mpo.dayon.common.capture.CaptureStage;
 import mpo.dayon.common.squeeze.CompressionMethod;
 import mpo.dayon.common.utils.UnitUtilities;
 
 public class NetworkCaptureMessage extends NetworkMessage {
+	/**
+	 * Marker sent instead of the delta of a stage not time-stamped.
+	 */
+	private static final int UNSTAMPED = Integer.MIN_VALUE;
+
 	private final int id;
 
 	private final CompressionMethod compressionMethod;
@@ -21,12 +27,21 @@ public class NetworkCaptureMessage extends NetworkMessage {
 
 	private final MemByteBuffer payload;
 
+	/**
+	 * Per capture stage (latency) : the assisted stages are sent along with the
+	 * payload; the assistant ones are added once received.
+	 *
+	 * @see CaptureStage
+	 */
+	private final long[] timestamps;
+
 	public NetworkCaptureMessage(int id, CompressionMethod compressionMethod, @Nullable CompressorEngineConfiguration compressionConfiguration,
-			MemByteBuffer payload) {
+			MemByteBuffer payload, long[] timestamps) {
 		this.id = id;
 		this.compressionMethod = compressionMethod;
 		this.compressionConfiguration = compressionConfiguration;
 		this.payload = payload;
+		this.timestamps = timestamps;
 	}
 
 	public NetworkMessageType getType() {
@@ -46,18 +61,48 @@ public class NetworkCaptureMessage extends NetworkMessage {
 		return compressionConfiguration;
 	}
 
+	public void stamp(CaptureStage stage, long timestamp) {
+		timestamps[stage.ordinal()] = timestamp;
+	}
+
+	public long getTimestamp(CaptureStage stage) {
+		return timestamps[stage.ordinal()];
+	}
+
+	public long[] getTimestamps() {
+		return timestamps;
+	}
+
+	/**
+	 * From the assisted clock to the assistant clock (the stages not
+	 * time-stamped are left to 0).
+	 *
+	 * @param offset
+	 *            assistant clock - assisted clock
+	 */
+	public void toLocalClock(long offset) {
+		for (int idx = 0; idx < CaptureStage.ASSISTED_STAGE_COUNT; idx++) {
+			if (timestamps[idx] > 0) {
+				timestamps[idx] += offset;
+			}
+		}
+	}
+
 	/**
 	 * Take into account some extra-info sent over the network with the actual
 	 * payload ...
 	 */
 	public int getWireSize() {
+		// grab (long) + the other assisted stages (int)
+		final int stamps = 8 + 4 * (CaptureStage.ASSISTED_STAGE_COUNT - 1);
+
 		if (compressionConfiguration == null) {
-			return 11 + payload.size(); // type (byte) + capture-id (int) +
+			return 11 + stamps + payload.size(); // type (byte) + capture-id (int) +
 										// compression (byte) +
 										// configuration-marker (byte) + len
 										// (int) + data (byte[])
 		} else {
-			return 10 + 11 + payload.size(); // type (byte) + capture-id (int) +
+			return 10 + 11 + stamps + payload.size(); // type (byte) + capture-id (int) +
 												// compression (byte) +
 												// configuration (???) + len
 												// (int) + data (byte[])
@@ -79,6 +124,17 @@ public class NetworkCaptureMessage extends NetworkMessage {
 			new NetworkCompressorConfigurationMessage(compressionConfiguration).marshall(out);
 		}
 
+		// that's the last point of the assisted pipeline (!)
+		stamp(CaptureStage.WRITE, System.currentTimeMillis());
+
+		final long grab = timestamps[CaptureStage.GRAB.ordinal()];
+
+		out.writeLong(grab);
+
+		for (int idx = 1; idx < CaptureStage.ASSISTED_STAGE_COUNT; idx++) {
+			out.writeInt(grab > 0 && timestamps[idx] > 0 ? (int) (timestamps[idx] - grab) : UNSTAMPED);
+		}
+
 		out.writeInt(payload.size());
 		out.write(payload.getInternal(), 0, payload.size());
 	}
@@ -97,6 +153,17 @@ public class NetworkCaptureMessage extends NetworkMessage {
 			compressionConfiguration = null;
 		}
 
+		final long[] timestamps = new long[CaptureStage.values().length];
+
+		final long grab = in.readLong();
+
+		timestamps[CaptureStage.GRAB.ordinal()] = grab;
+
+		for (int idx = 1; idx < CaptureStage.ASSISTED_STAGE_COUNT; idx++) {
+			final int delta = in.readInt();
+			timestamps[idx] = delta == UNSTAMPED ? 0 : grab + delta;
+		}
+
 		final int len = in.readInt();
 		final byte[] data = new byte[len];
 
@@ -107,7 +174,7 @@ public class NetworkCaptureMessage extends NetworkMessage {
 			offset += count;
 		}
 
-		return new NetworkCaptureMessage(id, compressionMethod, compressionConfiguration, new MemByteBuffer(data));
+		return new NetworkCaptureMessage(id, compressionMethod, compressionConfiguration, new MemByteBuffer(data), timestamps);
 	}
 
 	public MemByteBuffer getPayload() {
@@ -0,0 +1,116 @@
+package mpo.dayon.common.network.message;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Clock synchronization (capture latency) : a request from the assistant
+ * echoed right away by the assisted. The offset between both clocks is then
+ * estimated from that round trip (NTP like) and not from a one-way message
+ * (that would include the network delay).
+ */
+public class NetworkClockMessage extends NetworkMessage {
+	/**
+	 * The assistant clock (millis) when writing the request.
+	 */
+	private long requestTimestamp;
+
+	/**
+	 * The assisted clock (millis) when reading the request (0 : request).
+	 */
+	private final long receiveTimestamp;
+
+	/**
+	 * The assisted clock (millis) when writing the reply (0 : request).
+	 */
+	private long replyTimestamp;
+
+	private NetworkClockMessage(long requestTimestamp, long receiveTimestamp, long replyTimestamp) {
+		this.requestTimestamp = requestTimestamp;
+		this.receiveTimestamp = receiveTimestamp;
+		this.replyTimestamp = replyTimestamp;
+	}
+
+	/**
+	 * Assistant 2 assisted.
+	 */
+	public static NetworkClockMessage request() {
+		return new NetworkClockMessage(0, 0, 0);
+	}
+
+	/**
+	 * Assisted 2 assistant.
+	 *
+	 * @param received
+	 *            the assisted clock when the request has been read
+	 */
+	public static NetworkClockMessage reply(NetworkClockMessage request, long received) {
+		return new NetworkClockMessage(request.requestTimestamp, received, 0);
+	}
+
+	public NetworkMessageType getType() {
+		return NetworkMessageType.CLOCK;
+	}
+
+	public boolean isRequest() {
+		return receiveTimestamp == 0;
+	}
+
+	/**
+	 * The network round trip (i.e., without the time spent by the assisted
+	 * before replying).
+	 *
+	 * @param received
+	 *            the assistant clock when the reply has been read
+	 */
+	public long getRoundTripDelay(long received) {
+		return (received - requestTimestamp) - (replyTimestamp - receiveTimestamp);
+	}
+
+	/**
+	 * Assistant clock - assisted clock : assumes a symmetric network delay
+	 * (the error is at most half the round trip delay).
+	 *
+	 * @param received
+	 *            the assistant clock when the reply has been read
+	 */
+	public long getClockOffset(long received) {
+		return ((requestTimestamp - receiveTimestamp) + (received - replyTimestamp)) / 2;
+	}
+
+	/**
+	 * Take into account some extra-info sent over the network with the actual
+	 * payload ...
+	 */
+	public int getWireSize() {
+		return 25; // type (byte) + request (long) + receive (long) + reply (long)
+	}
+
+	public void marshall(DataOutputStream out) throws IOException {
+		// as late as possible : not waiting in the sender queue (!)
+		if (isRequest()) {
+			requestTimestamp = System.currentTimeMillis();
+		} else {
+			replyTimestamp = System.currentTimeMillis();
+		}
+
+		marshallEnum(out, NetworkMessageType.class, getType());
+
+		out.writeLong(requestTimestamp);
+		out.writeLong(receiveTimestamp);
+		out.writeLong(replyTimestamp);
+	}
+
+	public static NetworkClockMessage unmarshall(DataInputStream in) throws IOException {
+		final long requestTimestamp = in.readLong();
+		final long receiveTimestamp = in.readLong();
+		final long replyTimestamp = in.readLong();
+
+		return new NetworkClockMessage(requestTimestamp, receiveTimestamp, replyTimestamp);
+	}
+
+	public String toString() {
+		return String.format("[request:%d] [receive:%d] [reply:%d]", requestTimestamp, receiveTimestamp, replyTimestamp);
+	}
+}
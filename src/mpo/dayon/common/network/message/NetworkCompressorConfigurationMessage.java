@@ -27,8 +27,8 @@ public class NetworkCompressorConfigurationMessage extends NetworkMessage {
 	 * payload ...
 	 */
 	public int getWireSize() {
-		return 11; // type (byte) + method (byte) + useCase (byte) + max (int) +
-					// purge (int)
+		return 12; // type (byte) + method (byte) + useCase (byte) + max (int) +
+					// purge (int) + useDelta (byte)
 	}
 
 	public void marshall(DataOutputStream out) throws IOException {
@@ -39,6 +39,7 @@ public class NetworkCompressorConfigurationMessage extends NetworkMessage {
 		out.writeByte(configuration.useCache() ? 1 : 0);
 		out.writeInt(configuration.getCacheMaxSize());
 		out.writeInt(configuration.getCachePurgeSize());
+		out.writeByte(configuration.useDelta() ? 1 : 0);
 	}
 
 	public static NetworkCompressorConfigurationMessage unmarshall(DataInputStream in) throws IOException {
@@ -47,8 +48,9 @@ public class NetworkCompressorConfigurationMessage extends NetworkMessage {
 		final boolean useCase = in.readByte() == 1;
 		final int maxSize = in.readInt();
 		final int purgeSize = in.readInt();
+		final boolean useDelta = in.readByte() == 1;
 
-		return new NetworkCompressorConfigurationMessage(new CompressorEngineConfiguration(method, useCase, maxSize, purgeSize));
+		return new NetworkCompressorConfigurationMessage(new CompressorEngineConfiguration(method, useCase, maxSize, purgeSize, useDelta));
 	}
 
 	public String toString() {
@@ -4,14 +4,32 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 
+import mpo.dayon.common.squeeze.BloomFilter;
+
 public class NetworkHelloMessage extends NetworkMessage {
 	private final int major;
 
 	private final int minor;
 
-	public NetworkHelloMessage(int major, int minor) {
+	/**
+	 * The assisted clock (millis) when sending that message : allows for
+	 * estimating the clock offset between the assistant and the assisted
+	 * (capture latency).
+	 */
+	private final long timestamp;
+
+	/**
+	 * The cache ids of the assisted tile store (empty if none).
+	 *
+	 * @see mpo.dayon.common.squeeze.PersistentTileStore
+	 */
+	private final BloomFilter summary;
+
+	public NetworkHelloMessage(int major, int minor, long timestamp, BloomFilter summary) {
 		this.major = major;
 		this.minor = minor;
+		this.timestamp = timestamp;
+		this.summary = summary;
 	}
 
 	public NetworkMessageType getType() {
@@ -26,12 +44,20 @@ public class NetworkHelloMessage extends NetworkMessage {
 		return minor;
 	}
 
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public BloomFilter getSummary() {
+		return summary;
+	}
+
 	/**
 	 * Take into account some extra-info sent over the network with the actual
 	 * payload ...
 	 */
 	public int getWireSize() {
-		return 9; // type (byte) + major (int) + minor (int)
+		return 21 + 8 * summary.getWords().length; // type (byte) + major (int) + minor (int) + timestamp (long) + summary (int + longs)
 	}
 
 	public void marshall(DataOutputStream out) throws IOException {
@@ -39,16 +65,38 @@ public class NetworkHelloMessage extends NetworkMessage {
 
 		out.writeInt(major);
 		out.writeInt(minor);
+		out.writeLong(timestamp);
+
+		final long[] words = summary.getWords();
+
+		out.writeInt(words.length);
+
+		for (final long word : words) {
+			out.writeLong(word);
+		}
 	}
 
 	public static NetworkHelloMessage unmarshall(DataInputStream in) throws IOException {
 		final int major = in.readInt();
 		final int minor = in.readInt();
+		final long timestamp = in.readLong();
+
+		final int count = in.readInt();
+
+		if (count < 0 || count > BloomFilter.MAX_WORDS) {
+			throw new IOException("Invalid tile store summary [" + count + "]!");
+		}
+
+		final long[] words = new long[count];
+
+		for (int idx = 0; idx < count; idx++) {
+			words[idx] = in.readLong();
+		}
 
-		return new NetworkHelloMessage(major, minor);
+		return new NetworkHelloMessage(major, minor, timestamp, count == 0 ? BloomFilter.EMPTY : new BloomFilter(words));
 	}
 
 	public String toString() {
-		return String.format("[major:%d] [minor:%s]", major, minor);
+		return String.format("[major:%d] [minor:%s] [timestamp:%d] [summary:%d]", major, minor, timestamp, summary.getWords().length);
 	}
 }
\ No newline at end of file
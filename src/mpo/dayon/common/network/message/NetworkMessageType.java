@@ -35,4 +35,15 @@ public enum NetworkMessageType {
 	 * A keyboard control event (i.e., assistant to assisted).
 	 */
 	KEY_CONTROL,
+
+	/**
+	 * The tiles of the tile store shared for the current connection (i.e.,
+	 * assistant to assisted).
+	 */
+	TILE_STORE,
+
+	/**
+	 * Clock synchronization round trip (i.e., assistant to assisted and back).
+	 */
+	CLOCK,
 }
\ No newline at end of file
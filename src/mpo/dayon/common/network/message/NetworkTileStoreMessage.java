@@ -0,0 +1,70 @@
+package mpo.dayon.common.network.message;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * From the assistant to the assisted : the cache ids of the tiles loaded from
+ * the assistant tile store for the current connection.
+ *
+ * @see mpo.dayon.common.squeeze.PersistentTileStore#share(mpo.dayon.common.squeeze.BloomFilter)
+ */
+public class NetworkTileStoreMessage extends NetworkMessage {
+	/**
+	 * Sanity check (about 2 millions of tiles).
+	 */
+	private static final int MAX_TILES = 1 << 21;
+
+	private final long[] cacheIds;
+
+	public NetworkTileStoreMessage(long[] cacheIds) {
+		this.cacheIds = cacheIds;
+	}
+
+	public NetworkMessageType getType() {
+		return NetworkMessageType.TILE_STORE;
+	}
+
+	public long[] getCacheIds() {
+		return cacheIds;
+	}
+
+	/**
+	 * Take into account some extra-info sent over the network with the actual
+	 * payload ...
+	 */
+	public int getWireSize() {
+		return 5 + 8 * cacheIds.length; // type (byte) + count (int) + cache ids (long)
+	}
+
+	public void marshall(DataOutputStream out) throws IOException {
+		marshallEnum(out, NetworkMessageType.class, getType());
+
+		out.writeInt(cacheIds.length);
+
+		for (final long cacheId : cacheIds) {
+			out.writeLong(cacheId);
+		}
+	}
+
+	public static NetworkTileStoreMessage unmarshall(DataInputStream in) throws IOException {
+		final int count = in.readInt();
+
+		if (count < 0 || count > MAX_TILES) {
+			throw new IOException("Invalid tile count [" + count + "]!");
+		}
+
+		final long[] cacheIds = new long[count];
+
+		for (int idx = 0; idx < count; idx++) {
+			cacheIds[idx] = in.readLong();
+		}
+
+		return new NetworkTileStoreMessage(cacheIds);
+	}
+
+	public String toString() {
+		return String.format("[tiles:%d]", cacheIds.length);
+	}
+}
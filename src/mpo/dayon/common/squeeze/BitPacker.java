@@ -0,0 +1,122 @@
+package mpo.dayon.common.squeeze;
+
+import mpo.dayon.common.buffer.MemByteBuffer;
+
+/**
+ * The quantized gray levels (e.g., X_16) are rounded UP to a multiple of the
+ * quantization factor (minus one) : a tile is sent as level indices packed
+ * with the number of bits needed (e.g., 4 bits per pixel for X_16).
+ * <p/>
+ * The factor is found from the tile itself (i.e., the largest one all its
+ * pixels are matching) : no configuration needed on the de-compressor side.
+ * <p/>
+ * A delta (XOR) of two quantized tiles has its low bits cleared instead : the
+ * same packing rounded DOWN.
+ */
+abstract class BitPacker {
+	/**
+	 * Above that byte alignment gives the zippers a better chance.
+	 */
+	static final int MAX_BITS = 4;
+
+	/**
+	 * @return the number of bits per pixel (8 : not quantized)
+	 */
+	static int computeBits(MemByteBuffer tile) {
+		final byte[] data = tile.getInternal();
+		final int len = tile.size();
+
+		int mask = 0;
+
+		for (int idx = 0; idx < len; idx++) {
+			mask |= (data[idx] & 0xFF) + 1;
+		}
+
+		return Math.max(1, 8 - Integer.numberOfTrailingZeros(mask));
+	}
+
+	/**
+	 * @return the number of bits per pixel of a delta (8 : not quantized)
+	 */
+	static int computeDeltaBits(MemByteBuffer delta) {
+		final byte[] data = delta.getInternal();
+		final int len = delta.size();
+
+		int mask = 0;
+
+		for (int idx = 0; idx < len; idx++) {
+			mask |= data[idx] & 0xFF;
+		}
+
+		return mask == 0 ? 1 : Math.max(1, 8 - Integer.numberOfTrailingZeros(mask));
+	}
+
+	static MemByteBuffer pack(MemByteBuffer tile, int bits) {
+		final byte[] data = tile.getInternal();
+		final int len = tile.size();
+
+		final int shift = 8 - bits;
+
+		final byte[] packed = new byte[(len * bits + 7) / 8];
+
+		int pos = 0;
+		int acc = 0;
+		int accBits = 0;
+
+		for (int idx = 0; idx < len; idx++) {
+			acc = (acc << bits) | ((data[idx] & 0xFF) >>> shift);
+			accBits += bits;
+
+			if (accBits >= 8) {
+				accBits -= 8;
+				packed[pos++] = (byte) (acc >>> accBits);
+			}
+		}
+
+		if (accBits > 0) {
+			packed[pos] = (byte) (acc << (8 - accBits));
+		}
+
+		return new MemByteBuffer(packed);
+	}
+
+	/**
+	 * @param count
+	 *            the number of pixels of the tile
+	 */
+	static MemByteBuffer unpack(MemByteBuffer packed, int bits, int count) {
+		return unpack(packed, bits, count, (1 << (8 - bits)) - 1); // rounded UP (!)
+	}
+
+	/**
+	 * @see #computeDeltaBits(MemByteBuffer)
+	 */
+	static MemByteBuffer unpackDelta(MemByteBuffer packed, int bits, int count) {
+		return unpack(packed, bits, count, 0); // rounded DOWN (!)
+	}
+
+	private static MemByteBuffer unpack(MemByteBuffer packed, int bits, int count, int low) {
+		final byte[] data = packed.getInternal();
+
+		final int shift = 8 - bits;
+		final int valueMask = (1 << bits) - 1;
+
+		final byte[] tile = new byte[count];
+
+		int pos = 0;
+		int acc = 0;
+		int accBits = 0;
+
+		for (int idx = 0; idx < count; idx++) {
+			if (accBits < bits) {
+				acc = (acc << 8) | (data[pos++] & 0xFF);
+				accBits += 8;
+			}
+
+			accBits -= bits;
+			tile[idx] = (byte) ((((acc >>> accBits) & valueMask) << shift) | low);
+		}
+
+		return new MemByteBuffer(tile);
+	}
+}
@@ -0,0 +1,84 @@
+package mpo.dayon.common.squeeze;
+
+/**
+ * A compact summary of a set of cache ids : might say a cache id belongs to
+ * the set when it does not (about 1% of the time) but never the other way.
+ * <p/>
+ * The cache ids being 64 bits hashes already, the positions of the bits are
+ * derived from the cache id itself (double hashing).
+ */
+public class BloomFilter {
+	public static final BloomFilter EMPTY = new BloomFilter(new long[0]);
+
+	private static final int BITS_PER_ID = 10;
+
+	/**
+	 * Sanity check of the received summaries (2 MB).
+	 */
+	public static final int MAX_WORDS = 1 << 18;
+
+	/**
+	 * The largest count fitting into MAX_WORDS (about 1.6 millions of cache
+	 * ids).
+	 */
+	public static final int MAX_COUNT = MAX_WORDS * 64 / BITS_PER_ID;
+
+	private static final int HASH_COUNT = 7;
+
+	private final long[] words;
+
+	public BloomFilter(int count) {
+		this(new long[count == 0 ? 0 : (count * BITS_PER_ID + 63) / 64]);
+	}
+
+	/**
+	 * @see #getWords()
+	 */
+	public BloomFilter(long[] words) {
+		this.words = words;
+	}
+
+	/**
+	 * Marshalling purpose.
+	 */
+	public long[] getWords() {
+		return words;
+	}
+
+	public boolean isEmpty() {
+		return words.length == 0;
+	}
+
+	public void add(long cacheId) {
+		final long bits = words.length * 64L;
+
+		final int h1 = (int) cacheId;
+		final int h2 = (int) (cacheId >>> 32) | 1;
+
+		for (int idx = 0; idx < HASH_COUNT; idx++) {
+			final long bit = ((h1 + idx * h2) & 0xFFFFFFFFL) % bits;
+			words[(int) (bit >>> 6)] |= 1L << bit;
+		}
+	}
+
+	public boolean mightContain(long cacheId) {
+		if (words.length == 0) {
+			return false;
+		}
+
+		final long bits = words.length * 64L;
+
+		final int h1 = (int) cacheId;
+		final int h2 = (int) (cacheId >>> 32) | 1;
+
+		for (int idx = 0; idx < HASH_COUNT; idx++) {
+			final long bit = ((h1 + idx * h2) & 0xFFFFFFFFL) % bits;
+
+			if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
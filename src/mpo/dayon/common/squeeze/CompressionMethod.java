@@ -2,5 +2,13 @@ package mpo.dayon.common.squeeze;
 
 public enum CompressionMethod {
 	// NONE,
-	ZIP, BZIP2, LZMA,
+	ZIP, BZIP2, LZMA, DEFLATE,
+
+	/**
+	 * The compressor engine is choosing one of the others for each capture
+	 * (never sent with a capture).
+	 */
+	AUTO,
+
+	LZ4,
 }
@@ -1,15 +1,41 @@
 package mpo.dayon.common.squeeze;
 
+import java.awt.Rectangle;
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.jetbrains.annotations.Nullable;
 
 import mpo.dayon.common.buffer.MemByteBuffer;
 import mpo.dayon.common.capture.Capture;
 import mpo.dayon.common.capture.CaptureTile;
+import mpo.dayon.common.capture.CopyRect;
 import mpo.dayon.common.log.Log;
 
 public class Compressor {
+	/**
+	 * Below that number of not cached multi-level tiles per chunk it is not
+	 * worth splitting the capture.
+	 */
+	private static final int MIN_CHUNK_TILES = 16;
+
+	/**
+	 * The chunk count is sent as a byte.
+	 */
+	private static final int MAX_CHUNKS = 255;
+
+	/**
+	 * The marker of a delta tile (+ the bits per pixel if packed).
+	 */
+	private static final int DELTA = 264;
+
 	/**
 	 * NONE.
 	 */
@@ -18,32 +44,52 @@ public class Compressor {
 	// NULL_Zipper());
 
 	/**
-	 * ZIP (with regular run-length-encoding).
+	 * ZIP (with regular run-length-encoding and bit-packing).
 	 */
-	private static final Compressor ZIP_COMPRESSOR = new Compressor(CompressionMethod.ZIP, new RegularRunLengthEncoder(), new ZIP_Zipper());
+	private static final Compressor ZIP_COMPRESSOR = new Compressor(CompressionMethod.ZIP, new RegularRunLengthEncoder(), true, new ZIP_Zipper());
 
 	/**
 	 * BZIP2.
 	 */
-	private static final Compressor BZIP2_COMPRESSOR = new Compressor(CompressionMethod.BZIP2, new NullRunLengthEncoder(), new BZIP2_Zipper());
+	private static final Compressor BZIP2_COMPRESSOR = new Compressor(CompressionMethod.BZIP2, new NullRunLengthEncoder(), false, new BZIP2_Zipper());
 
 	/**
 	 * LZMA.
 	 */
-	private static final Compressor LZMA_COMPRESSOR = new Compressor(CompressionMethod.LZMA, new NullRunLengthEncoder(), new LZMA_Zipper());
+	private static final Compressor LZMA_COMPRESSOR = new Compressor(CompressionMethod.LZMA, new NullRunLengthEncoder(), false, new LZMA_Zipper());
+
+	/**
+	 * LZ4 (fast : LAN) with bit-packing.
+	 */
+	private static final Compressor LZ4_COMPRESSOR = new Compressor(CompressionMethod.LZ4, new NullRunLengthEncoder(), true, new LZ4_Zipper());
 
 	private final CompressionMethod method;
 
 	private final RunLengthEncoder rle;
 
+	/**
+	 * The quantized tiles are sent as packed level indices : BZIP2 and LZMA
+	 * are doing better with the whole bytes (their context modeling already
+	 * takes advantage of the unused bits).
+	 *
+	 * @see BitPacker
+	 */
+	private final boolean packing;
+
 	private final Zipper zipper;
 
-	private Compressor(CompressionMethod method, RunLengthEncoder rle, Zipper zipper) {
+	private Compressor(CompressionMethod method, RunLengthEncoder rle, boolean packing, Zipper zipper) {
 		this.method = method;
 		this.rle = rle;
+		this.packing = packing;
 		this.zipper = zipper;
 	}
 
+	/**
+	 * A stateful compressor (e.g., DEFLATE) is created for each call : the
+	 * caller has to keep it for the whole session (or until the next
+	 * re-configuration).
+	 */
 	public static Compressor get(CompressionMethod method) {
 		// if (NULL_COMPRESSOR.method == method)
 		// {
@@ -62,6 +108,15 @@ public class Compressor {
 			return LZMA_COMPRESSOR;
 		}
 
+		if (LZ4_COMPRESSOR.method == method) {
+			return LZ4_COMPRESSOR;
+		}
+
+		// DEFLATE (with regular run-length-encoding and bit-packing) : stateful (!)
+		if (method == CompressionMethod.DEFLATE) {
+			return new Compressor(CompressionMethod.DEFLATE, new RegularRunLengthEncoder(), true, new DEFLATE_Zipper());
+		}
+
 		throw new RuntimeException("Unsupported compressor configuration [" + method + "]!");
 	}
 
@@ -69,17 +124,53 @@ public class Compressor {
 		return method;
 	}
 
+	/**
+	 * The caller is not using this compressor anymore (e.g., re-configuration)
+	 * : releases the native resources of a stateful one (the shared ones are
+	 * kept).
+	 */
+	public void release() {
+		if (zipper.isStateful()) {
+			zipper.release();
+		}
+	}
+
 	public MemByteBuffer compress(TileCache cache, Capture capture) throws IOException {
+		return compress(cache, null, capture, null);
+	}
+
+	/**
+	 * The dirty tiles are split into chunks (zipped independently) :
+	 *
+	 * <pre>
+	 * [ header ] [ chunk count ] [ first tile, zipped length ] * N [ zipped chunk ] * N
+	 * </pre>
+	 *
+	 * The cache is updated in the order of the tiles (as the de-compressor is
+	 * doing) : only the encoding and the zipping are processed in parallel (a
+	 * stateful zipper is always using a single chunk).
+	 *
+	 * @param framebuffer
+	 *            if not null the multi-level tiles might be sent as a delta
+	 *            from their previous content
+	 * @param pool
+	 *            if not null the chunks are processed in parallel (otherwise a
+	 *            single chunk)
+	 */
+	public MemByteBuffer compress(TileCache cache, @Nullable Framebuffer framebuffer, Capture capture, @Nullable ForkJoinPool pool)
+			throws IOException {
 		final MemByteBuffer encoded = new MemByteBuffer();
 
 		encoded.writeInt(capture.getId());
 		encoded.write(capture.isReset() ? 1 : 0);
 		encoded.write(capture.getSkipped()); // as a byte (!)
 		encoded.write(capture.getMerged()); // as a byte (!)
+		encoded.writeInt(capture.getSkippedRows());
 
 		if (capture.isReset()) {
 			Log.info("Clear compressor cache [tile:" + capture.getId() + "]");
 			cache.clear(); // here for symmetry with the de-compressor (!)
+			zipper.reset();
 		}
 
 		encoded.writeShort(capture.getWidth());
@@ -88,18 +179,148 @@ public class Compressor {
 		encoded.writeShort(capture.getTWidth());
 		encoded.writeShort(capture.getTHeight());
 
+		final CopyRect[] copies = capture.getCopies();
+
+		encoded.writeShort(copies.length);
+
+		for (final CopyRect copy : copies) {
+			encoded.writeShort(copy.getX());
+			encoded.writeShort(copy.getY());
+			encoded.writeShort(copy.getWidth());
+			encoded.writeShort(copy.getHeight());
+			encoded.writeShort(copy.getSrcX());
+			encoded.writeShort(copy.getSrcY());
+		}
+
+		final Rectangle[] videoRegions = capture.getVideoRegions();
+
+		encoded.writeShort(videoRegions.length);
+
+		for (final Rectangle region : videoRegions) {
+			encoded.writeShort(region.x);
+			encoded.writeShort(region.y);
+			encoded.writeShort(region.width);
+			encoded.writeShort(region.height);
+		}
+
+		if (framebuffer != null) {
+			framebuffer.onCapture(capture.isReset(), capture.getWidth(), capture.getHeight());
+			framebuffer.applyCopies(copies);
+		}
+
 		final CaptureTile[] tiles = capture.getDirtyTiles();
 
-		int idx = 0;
+		final long[] cacheIds = new long[tiles.length];
+		final boolean[] cached = new boolean[tiles.length];
+
+		final int rawCount = lookupCache(cache, tiles, cacheIds, cached);
+
+		final int[] bounds = computeChunkBounds(tiles, cached, rawCount, zipper.isStateful() ? null : pool);
+		final int chunkCount = bounds.length - 1;
+
+		final List<Callable<MemByteBuffer>> tasks = new ArrayList<>(chunkCount);
+
+		for (int cidx = 0; cidx < chunkCount; cidx++) {
+			final int from = bounds[cidx];
+			final int to = bounds[cidx + 1];
 
-		while (idx < tiles.length) {
-			final int markerCount = computeMarkerCount(tiles, idx);
+			tasks.add(() -> zipper.zip(encodeChunk(framebuffer, tiles, cacheIds, cached, from, to)));
+		}
+
+		final List<MemByteBuffer> chunks = invokeAll(pool, tasks);
+
+		if (framebuffer != null) {
+			framebuffer.update(tiles); // once all the deltas computed (!)
+		}
+
+		encoded.write(chunkCount);
+
+		for (int cidx = 0; cidx < chunkCount; cidx++) {
+			encoded.writeInt(bounds[cidx]);
+			encoded.writeInt(chunks.get(cidx).size());
+		}
+
+		for (final MemByteBuffer chunk : chunks) {
+			encoded.write(chunk.getInternal(), 0, chunk.size());
+		}
+
+		return encoded;
+	}
+
+	/**
+	 * The multi-level tiles either found in the cache (LRU usage) or added to
+	 * it.
+	 *
+	 * @return the number of multi-level tiles not cached
+	 */
+	private static int lookupCache(TileCache cache, CaptureTile[] tiles, long[] cacheIds, boolean[] cached) {
+		int rawCount = 0;
+
+		for (int idx = 0; idx < tiles.length; idx++) {
+			final CaptureTile tile = tiles[idx];
+
+			if (tile == null || tile.getSingleLevel() != -1) {
+				continue;
+			}
+
+			cacheIds[idx] = cache.getCacheId(tile);
+
+			if (cache.get(cacheIds[idx]) != CaptureTile.MISSING) // LRU usage (!)
+			{
+				cached[idx] = true;
+			} else {
+				cache.add(tile);
+				++rawCount;
+			}
+		}
+
+		return rawCount;
+	}
+
+	/**
+	 * The same number of not cached multi-level tiles per chunk (i.e., the ones
+	 * being run-length-encoded and taking most of the zipping time).
+	 *
+	 * @return the first tile of each chunk (+ the tile count)
+	 */
+	private static int[] computeChunkBounds(CaptureTile[] tiles, boolean[] cached, int rawCount, @Nullable ForkJoinPool pool) {
+		final int chunkCount = pool == null ? 1 : Math.max(1, Math.min(Math.min(pool.getParallelism(), MAX_CHUNKS), rawCount / MIN_CHUNK_TILES));
+
+		final int[] bounds = new int[chunkCount + 1];
+
+		bounds[chunkCount] = tiles.length;
+
+		int chunk = 1;
+		int raw = 0;
+
+		for (int idx = 0; idx < tiles.length && chunk < chunkCount; idx++) {
+			final CaptureTile tile = tiles[idx];
+
+			if (tile != null && tile.getSingleLevel() == -1 && !cached[idx]) {
+				if (raw == chunk * rawCount / chunkCount) {
+					bounds[chunk++] = idx;
+				}
+				++raw;
+			}
+		}
+
+		return bounds;
+	}
+
+	private MemByteBuffer encodeChunk(@Nullable Framebuffer framebuffer, CaptureTile[] tiles, long[] cacheIds, boolean[] cached, int from, int to)
+			throws IOException {
+		final MemByteBuffer encoded = new MemByteBuffer();
+
+		int idx = from;
+
+		while (idx < to) {
+			final int markerCount = computeMarkerCount(tiles, idx, to);
 
 			if (markerCount > 0) {
 				encoded.write(markerCount); // non-null tile(s) count
 
 				for (int tidx = idx; tidx < idx + markerCount; tidx++) {
-					encodeTile(cache, rle, encoded, tiles[tidx]);
+					encodeTile(rle, packing, framebuffer, encoded, tiles[tidx], cacheIds[tidx], cached[tidx]);
 				}
 
 				idx += markerCount;
@@ -109,7 +330,7 @@ public class Compressor {
 			}
 		}
 
-		return zipper.zip(encoded);
+		return encoded;
 	}
 
 	/**
@@ -118,13 +339,13 @@ public class Compressor {
 	 * [ -128 .. 0   ] : (-N+1) null tiles
 	 * </pre>
 	 */
-	private static int computeMarkerCount(CaptureTile[] tiles, int from) {
+	private static int computeMarkerCount(CaptureTile[] tiles, int from, int to) {
 		final CaptureTile tile = tiles[from++];
 
 		if (tile == null) {
 			int count = 0;
 
-			while (count < 128 && from < tiles.length && tiles[from++] == null) {
+			while (count < 128 && from < to && tiles[from++] == null) {
 				++count;
 			}
 
@@ -132,7 +353,7 @@ public class Compressor {
 		} else {
 			int count = 1;
 
-			while (count < 127 && from < tiles.length && tiles[from++] != null) {
+			while (count < 127 && from < to && tiles[from++] != null) {
 				++count;
 			}
 
@@ -140,7 +361,18 @@ public class Compressor {
 		}
 	}
 
-	private static void encodeTile(TileCache cache, RunLengthEncoder encoder, MemByteBuffer encoded, CaptureTile tile) throws IOException {
+	/**
+	 * <pre>
+	 * [   0 .. 255 ] : single-level
+	 * [ 256        ] : cached
+	 * [ 257 .. 260 ] : packed (bits per pixel)
+	 * [ 264        ] : delta
+	 * [ 265 .. 268 ] : packed delta (bits per pixel)
+	 * [ -32768 .. 0 [ : run-length-encoded (negative length)
+	 * </pre>
+	 */
+	private static void encodeTile(RunLengthEncoder encoder, boolean packing, @Nullable Framebuffer framebuffer, MemByteBuffer encoded, CaptureTile tile,
+			long cacheId, boolean cached) throws IOException {
 		// single-level tile : [ 0 .. 256 [
 
 		if (tile.getSingleLevel() != -1) {
@@ -156,12 +388,40 @@ public class Compressor {
 
 		// multi-level tile : cached [256]
 
-		final int cacheId = cache.getCacheId(tile);
-
-		if (cache.get(cacheId) != CaptureTile.MISSING) // LRU usage (!)
-		{
+		if (cached) {
 			encoded.writeShort(256);
-			encoded.writeInt(cacheId);
+			encoded.writeLong(cacheId);
+			return;
+		}
+
+		// multi-level tile (not-cached) : delta [ 264 .. 268 ] [ -32768 .. 0 [
+
+		final MemByteBuffer delta = framebuffer == null ? null : computeDelta(framebuffer, tile);
+
+		if (delta != null) {
+			final int bits = packing ? BitPacker.computeDeltaBits(delta) : 8;
+			final boolean packed = bits <= BitPacker.MAX_BITS;
+
+			encoded.writeShort(packed ? DELTA + bits : DELTA);
+
+			final int mark = encoded.mark();
+			encoded.writeShort(42); // dunno yet (!)
+			encoder.runLengthEncode(encoded, packed ? BitPacker.pack(delta, bits) : delta);
+			encoded.writeLenAsShort(mark);
+			return;
+		}
+
+		// multi-level tile (not-cached and quantized) [ 257 .. 260 ] [ -32768 .. 0 [
+
+		final int bits = packing ? BitPacker.computeBits(tile.getCapture()) : 8;
+
+		if (bits <= BitPacker.MAX_BITS) {
+			encoded.writeShort(256 + bits);
+
+			final int mark = encoded.mark();
+			encoded.writeShort(42); // dunno yet (!)
+			encoder.runLengthEncode(encoded, BitPacker.pack(tile.getCapture(), bits));
+			encoded.writeLenAsShort(mark);
 			return;
 		}
 
@@ -171,14 +431,45 @@ public class Compressor {
 		encoded.writeShort(42); // dunno yet (!)
 		encoder.runLengthEncode(encoded, tile.getCapture());
 		encoded.writeLenAsShort(mark);
+	}
+
+	/**
+	 * XOR of the tile with its previous content (read-only access to the
+	 * framebuffer : the chunks are encoded in parallel).
+	 *
+	 * @return null if most of the tile has changed (i.e., not worth it)
+	 */
+	@Nullable
+	private static MemByteBuffer computeDelta(Framebuffer framebuffer, CaptureTile tile) {
+		final byte[] previous = framebuffer.get(tile.getX(), tile.getY(), tile.getWidth(), tile.getHeight());
+		final byte[] current = tile.getCapture().getInternal();
+
+		int unchanged = 0;
 
-		cache.add(tile);
+		for (int idx = 0; idx < previous.length; idx++) {
+			previous[idx] ^= current[idx];
+
+			if (previous[idx] == 0) {
+				++unchanged;
+			}
+		}
+
+		return 2 * unchanged < previous.length ? null : new MemByteBuffer(previous);
 	}
 
 	public Capture decompress(TileCache cache, MemByteBuffer zipped) throws IOException {
-		final MemByteBuffer unzipped = zipper.unzip(zipped);
+		return decompress(cache, null, zipped, null);
+	}
 
-		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(unzipped.getInternal(), 0, unzipped.size()));
+	/**
+	 * @param framebuffer
+	 *            required if the compressor is using one
+	 * @param pool
+	 *            if not null the chunks are processed in parallel
+	 * @see #compress(TileCache, Framebuffer, Capture, ForkJoinPool)
+	 */
+	public Capture decompress(TileCache cache, @Nullable Framebuffer framebuffer, MemByteBuffer zipped, @Nullable ForkJoinPool pool) throws IOException {
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(zipped.getInternal(), 0, zipped.size()));
 
 		final int cId = in.readInt();
 		final boolean cReset = in.read() == 1;
@@ -186,10 +477,12 @@ public class Compressor {
 		if (cReset) {
 			Log.info("Clear de-compressor cache [tile:" + cId + "]");
 			cache.clear();
+			zipper.reset();
 		}
 
 		final int cSkipped = in.readByte() & 0xFF;
 		final int cMerged = in.readByte() & 0xFF;
+		final int cSkippedRows = in.readInt();
 
 		final int cWidth = in.readShort();
 		final int cHeight = in.readShort();
@@ -197,13 +490,107 @@ public class Compressor {
 		final int tWidth = in.readShort();
 		final int tHeight = in.readShort();
 
+		final CopyRect[] copies = new CopyRect[in.readShort()];
+
+		for (int cidx = 0; cidx < copies.length; cidx++) {
+			copies[cidx] = new CopyRect(in.readShort(), in.readShort(), in.readShort(), in.readShort(), in.readShort(), in.readShort());
+		}
+
+		final Rectangle[] videoRegions = new Rectangle[in.readShort()];
+
+		for (int ridx = 0; ridx < videoRegions.length; ridx++) {
+			videoRegions[ridx] = new Rectangle(in.readShort(), in.readShort(), in.readShort(), in.readShort());
+		}
+
+		if (framebuffer != null) {
+			framebuffer.onCapture(cReset, cWidth, cHeight);
+			framebuffer.applyCopies(copies);
+		}
+
 		final CaptureTile.XYWH[] xywh = CaptureTile.getXYWH(cWidth, cHeight, tWidth, tHeight);
 
 		final CaptureTile[] dirty = new CaptureTile[xywh.length];
 
-		int idx = 0;
+		final long[] cacheIds = new long[dirty.length];
+		final boolean[] cached = new boolean[dirty.length];
+
+		final int chunkCount = in.readByte() & 0xFF;
+
+		final int[] bounds = new int[chunkCount + 1];
+		final int[] lengths = new int[chunkCount];
+
+		bounds[chunkCount] = dirty.length;
+
+		for (int cidx = 0; cidx < chunkCount; cidx++) {
+			bounds[cidx] = in.readInt();
+			lengths[cidx] = in.readInt();
+		}
+
+		checkChunks(bounds, lengths, in.available());
+
+		final List<Callable<Void>> tasks = new ArrayList<>(chunkCount);
+
+		for (int cidx = 0; cidx < chunkCount; cidx++) {
+			final byte[] chunk = new byte[lengths[cidx]];
+			in.readFully(chunk);
+
+			final int from = bounds[cidx];
+			final int to = bounds[cidx + 1];
+
+			tasks.add(() -> {
+				decodeChunk(framebuffer, zipper.unzip(new MemByteBuffer(chunk)), cId, xywh, dirty, cacheIds, cached, from, to);
+				return null;
+			});
+		}
+
+		invokeAll(pool, tasks);
+
+		// same order as the compressor (!)
+		for (int tidx = 0; tidx < dirty.length; tidx++) {
+			if (cached[tidx]) {
+				final CaptureTile xcached = cache.get(cacheIds[tidx]); // LRU usage (!)
 
-		while (idx < dirty.length) {
+				dirty[tidx] = new CaptureTile(cId, tidx, xywh[tidx], xcached);
+			} else if (dirty[tidx] != null && dirty[tidx].getSingleLevel() == -1) {
+				cache.add(dirty[tidx]);
+			}
+		}
+
+		if (framebuffer != null) {
+			framebuffer.update(dirty);
+		}
+
+		return new Capture(cId, cReset, cSkipped, cMerged, cSkippedRows, cWidth, cHeight, tWidth, tHeight, dirty, copies, null, videoRegions);
+	}
+
+	/**
+	 * The chunks are coming from the wire : they must split the tiles in order
+	 * and fit into the remaining payload (!)
+	 */
+	private static void checkChunks(int[] bounds, int[] lengths, int remaining) throws IOException {
+		for (int cidx = 0; cidx < lengths.length; cidx++) {
+			if (bounds[cidx] < 0 || bounds[cidx] > bounds[cidx + 1]) {
+				throw new IOException("Invalid chunk bounds [" + cidx + "][" + bounds[cidx] + ".." + bounds[cidx + 1] + "]!");
+			}
+
+			if (lengths[cidx] < 0 || lengths[cidx] > remaining) {
+				throw new IOException("Invalid chunk length [" + cidx + "][" + lengths[cidx] + "][remaining:" + remaining + "]!");
+			}
+
+			remaining -= lengths[cidx];
+		}
+	}
+
+	/**
+	 * The cached tiles are resolved afterwards (in the order of the tiles).
+	 */
+	private void decodeChunk(@Nullable Framebuffer framebuffer, MemByteBuffer unzipped, int cId, CaptureTile.XYWH[] xywh, CaptureTile[] dirty, long[] cacheIds, boolean[] cached, int from,
+			int to) throws IOException {
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(unzipped.getInternal(), 0, unzipped.size()));
+
+		int idx = from;
+
+		while (idx < to) {
 			final int markerCount = in.readByte();
 
 			if (markerCount > 0) // non-null tile(s)
@@ -216,28 +603,49 @@ public class Compressor {
 						dirty[tidx] = new CaptureTile(cId, tidx, xywh[tidx], (byte) value);
 					} else if (value == 256) // multi-level (cached)
 					{
-						final int cachedId = in.readInt();
-						final CaptureTile cached = cache.get(cachedId); // LRU
-																		// usage
-																		// (!)
-
-						dirty[tidx] = new CaptureTile(cId, tidx, xywh[tidx], cached);
-					} else // multi-level (not cached)
+						cacheIds[tidx] = in.readLong();
+						cached[tidx] = true;
+					} else if (value >= DELTA) // multi-level (not cached) : delta
 					{
-						final int tlen = -value;
-						final byte[] tdata = new byte[tlen];
+						if (framebuffer == null) {
+							throw new IOException("Delta tile without framebuffer!");
+						}
+
+						final byte[] tdata = new byte[-in.readShort()];
+						in.readFully(tdata);
+
+						final MemByteBuffer out = new MemByteBuffer();
+						rle.runLengthDecode(out, new MemByteBuffer(tdata));
+
+						final CaptureTile.XYWH txywh = xywh[tidx];
+						final MemByteBuffer delta = value > DELTA ? BitPacker.unpackDelta(out, value - DELTA, txywh.w * txywh.h) : out;
 
-						int toffset = 0;
-						int tcount;
+						final byte[] tile = framebuffer.get(txywh.x, txywh.y, txywh.w, txywh.h);
+						final byte[] xdelta = delta.getInternal();
 
-						while ((tcount = in.read(tdata, toffset, tdata.length - toffset)) > 0) {
-							toffset += tcount;
+						for (int pidx = 0; pidx < tile.length; pidx++) {
+							tile[pidx] ^= xdelta[pidx];
 						}
 
+						dirty[tidx] = new CaptureTile(cId, tidx, txywh, new MemByteBuffer(tile));
+					} else if (value > 256) // multi-level (not cached and quantized)
+					{
+						final byte[] tdata = new byte[-in.readShort()];
+						in.readFully(tdata);
+
+						final MemByteBuffer packed = new MemByteBuffer();
+						rle.runLengthDecode(packed, new MemByteBuffer(tdata));
+
+						dirty[tidx] = new CaptureTile(cId, tidx, xywh[tidx], BitPacker.unpack(packed, value - 256, xywh[tidx].w * xywh[tidx].h));
+					} else // multi-level (not cached)
+					{
+						final byte[] tdata = new byte[-value];
+						in.readFully(tdata);
+
 						final MemByteBuffer out = new MemByteBuffer();
 						rle.runLengthDecode(out, new MemByteBuffer(tdata));
 
-						cache.add(dirty[tidx] = new CaptureTile(cId, tidx, xywh[tidx], out));
+						dirty[tidx] = new CaptureTile(cId, tidx, xywh[tidx], out);
 					}
 				}
 
@@ -247,7 +655,41 @@ public class Compressor {
 				idx += (-markerCount + 1);
 			}
 		}
+	}
+
+	/**
+	 * @return the results in the order of the tasks
+	 */
+	private static <T> List<T> invokeAll(@Nullable ForkJoinPool pool, List<Callable<T>> tasks) throws IOException {
+		final List<T> results = new ArrayList<>(tasks.size());
+
+		if (pool == null || tasks.size() == 1) {
+			for (final Callable<T> task : tasks) {
+				try {
+					results.add(task.call());
+				} catch (IOException | RuntimeException ex) {
+					throw ex;
+				} catch (Exception ex) {
+					throw new IOException(ex);
+				}
+			}
+			return results;
+		}
+
+		for (final Future<T> future : pool.invokeAll(tasks)) {
+			try {
+				results.add(future.get());
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new IOException(ex);
+			} catch (ExecutionException ex) {
+				if (ex.getCause() instanceof IOException) {
+					throw (IOException) ex.getCause();
+				}
+				throw new IOException(ex.getCause());
+			}
+		}
 
-		return new Capture(cId, cReset, cSkipped, cMerged, cWidth, cHeight, tWidth, tHeight, dirty);
+		return results;
 	}
 }
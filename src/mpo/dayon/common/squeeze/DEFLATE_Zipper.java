@@ -0,0 +1,80 @@
+package mpo.dayon.common.squeeze;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import mpo.dayon.common.buffer.MemByteBuffer;
+
+/**
+ * Raw DEFLATE (no ZIP entry/headers) keeping its sliding window from one
+ * capture to the next : each capture is flushed (SYNC_FLUSH) to be decoded as
+ * soon as received.
+ * <p/>
+ * Stateful : one instance per compressor/de-compressor engine and the captures
+ * must be zipped/unzipped in the same order (reset on both sides with the
+ * capture reset flag).
+ */
+public class DEFLATE_Zipper extends Zipper {
+	private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+	private final Inflater inflater = new Inflater(true);
+
+	private final byte[] buffer = new byte[4096];
+
+	public DEFLATE_Zipper() {
+	}
+
+	@Override
+	boolean isStateful() {
+		return true;
+	}
+
+	@Override
+	void reset() {
+		deflater.reset();
+		inflater.reset();
+	}
+
+	@Override
+	void release() {
+		deflater.end();
+		inflater.end();
+	}
+
+	public MemByteBuffer zip(MemByteBuffer unzipped) throws IOException {
+		final MemByteBuffer zipped = new MemByteBuffer();
+
+		deflater.setInput(unzipped.getInternal(), 0, unzipped.size());
+
+		int count;
+		do {
+			count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+			zipped.write(buffer, 0, count);
+		} while (count == buffer.length); // output buffer full : more to flush (!)
+
+		return zipped;
+	}
+
+	public MemByteBuffer unzip(MemByteBuffer zipped) throws IOException {
+		final MemByteBuffer unzipped = new MemByteBuffer();
+
+		inflater.setInput(zipped.getInternal(), 0, zipped.size());
+
+		try {
+			int count;
+			while ((count = inflater.inflate(buffer)) > 0 || !inflater.needsInput()) {
+				if (count == 0) {
+					throw new IOException("DEFLATE: Error in data stream");
+				}
+				unzipped.write(buffer, 0, count);
+			}
+		} catch (DataFormatException ex) {
+			throw new IOException("DEFLATE: Error in data stream", ex);
+		}
+
+		return unzipped;
+	}
+
+}
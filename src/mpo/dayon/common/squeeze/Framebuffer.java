@@ -0,0 +1,98 @@
+package mpo.dayon.common.squeeze;
+
+import mpo.dayon.common.buffer.MemByteBuffer;
+import mpo.dayon.common.capture.CaptureTile;
+import mpo.dayon.common.capture.CopyRect;
+
+/**
+ * The screen as painted by the assistant (gray levels) : kept by both the
+ * compressor and the de-compressor (same copies and tiles applied in the
+ * same order) to send the dirty tiles as a delta from their previous
+ * content.
+ * <p/>
+ * Cleared (all zeros) with the capture reset flag or a new screen size as
+ * the assistant is starting from an empty screen as well.
+ *
+ * @see mpo.dayon.common.capture.Capture#createBufferedImage(byte[], int, int)
+ */
+public class Framebuffer {
+	private int width;
+
+	private int height;
+
+	private byte[] pixels = new byte[0];
+
+	public Framebuffer() {
+	}
+
+	/**
+	 * Before the copies and the tiles of a capture.
+	 */
+	void onCapture(boolean reset, int width, int height) {
+		if (reset || width != this.width || height != this.height) {
+			this.width = width;
+			this.height = height;
+			this.pixels = new byte[width * height];
+		}
+	}
+
+	/**
+	 * From the previous screen : the copies might overlap (!)
+	 */
+	void applyCopies(CopyRect[] copies) {
+		if (copies.length == 0) {
+			return;
+		}
+
+		final byte[] previous = pixels.clone();
+
+		for (final CopyRect copy : copies) {
+			int srcPos = copy.getSrcY() * width + copy.getSrcX();
+			int destPos = copy.getY() * width + copy.getX();
+
+			for (int row = 0; row < copy.getHeight(); row++) {
+				System.arraycopy(previous, srcPos, pixels, destPos, copy.getWidth());
+
+				srcPos += width;
+				destPos += width;
+			}
+		}
+	}
+
+	/**
+	 * Screen-rectangle buffer to tile-rectangle buffer.
+	 */
+	byte[] get(int x, int y, int w, int h) {
+		final byte[] tile = new byte[w * h];
+
+		int srcPos = y * width + x;
+
+		for (int destPos = 0; destPos < tile.length; destPos += w) {
+			System.arraycopy(pixels, srcPos, tile, destPos, w);
+			srcPos += width;
+		}
+
+		return tile;
+	}
+
+	/**
+	 * The tiles of the capture (null : unchanged).
+	 */
+	void update(CaptureTile[] tiles) {
+		for (final CaptureTile tile : tiles) {
+			if (tile == null) {
+				continue;
+			}
+
+			final MemByteBuffer src = tile.getCapture();
+			final int tw = tile.getWidth();
+
+			int destPos = tile.getY() * width + tile.getX();
+
+			for (int srcPos = 0; srcPos < src.size(); srcPos += tw) {
+				System.arraycopy(src.getInternal(), srcPos, pixels, destPos, tw);
+				destPos += width;
+			}
+		}
+	}
+}
@@ -0,0 +1,264 @@
+package mpo.dayon.common.squeeze;
+
+import java.io.IOException;
+
+import mpo.dayon.common.buffer.MemByteBuffer;
+import mpo.dayon.common.utils.SystemUtilities;
+
+/**
+ * LZ4 block format (no dependency) : byte-aligned sequences of literals and
+ * matches found with a hash table of the last positions (single pass, no
+ * entropy coding). Much faster than ZIP for a lower ratio (e.g., LAN).
+ *
+ * <pre>
+ * [ unzipped length (int) ] [ token ] [ literals ] [ offset (2) ] [ token ] ...
+ * </pre>
+ *
+ * Stateless : thread safe.
+ */
+public class LZ4_Zipper extends Zipper {
+	private static final int MIN_MATCH = 4;
+
+	/**
+	 * The last match starts at least that many bytes before the end.
+	 */
+	private static final int MF_LIMIT = 12;
+
+	/**
+	 * The last bytes are always literals.
+	 */
+	private static final int LAST_LITERALS = 5;
+
+	private static final int MAX_DISTANCE = 65535;
+
+	private static final int HASH_LOG = 14;
+
+	/**
+	 * The more bytes without a match the bigger the step (i.e., not
+	 * compressible data).
+	 */
+	private static final int SKIP_TRIGGER = 6;
+
+	/**
+	 * Sanity check of the unzipped length sent by the other side (before
+	 * allocating) : a capture of a 8K screen (gray levels) is about 32 MB
+	 * plus the encoding overhead.
+	 */
+	private static final int MAX_UNZIPPED_SIZE = SystemUtilities.getIntProperty(null, "dayon.lz4.maxUnzippedSize", 1 << 26);
+
+	/**
+	 * A byte of the zipped data is at most that many unzipped bytes (i.e.,
+	 * a length byte of 255).
+	 */
+	private static final int MAX_RATIO = 255;
+
+	public LZ4_Zipper() {
+	}
+
+	public MemByteBuffer zip(MemByteBuffer unzipped) throws IOException {
+		final byte[] src = unzipped.getInternal();
+		final int len = unzipped.size();
+
+		// worst case : not compressible at all
+		final byte[] dst = new byte[4 + len + len / 255 + 16];
+
+		writeInt(dst, 0, len);
+
+		final int[] table = new int[1 << HASH_LOG]; // position 0 : checked anyway (!)
+
+		final int limit = len - MF_LIMIT;
+		final int matchLimit = len - LAST_LITERALS;
+
+		int op = 4;
+		int anchor = 0;
+		int ip = 1;
+
+		while (ip < limit) {
+			final int hash = hash(readIntLE(src, ip));
+
+			int ref = table[hash];
+			table[hash] = ip;
+
+			if (ip - ref > MAX_DISTANCE || readIntLE(src, ref) != readIntLE(src, ip)) {
+				ip += 1 + ((ip - anchor) >>> SKIP_TRIGGER);
+				continue;
+			}
+
+			// backward
+			while (ip > anchor && ref > 0 && src[ip - 1] == src[ref - 1]) {
+				--ip;
+				--ref;
+			}
+
+			// forward
+			int matchLen = MIN_MATCH;
+
+			while (ip + matchLen < matchLimit && src[ref + matchLen] == src[ip + matchLen]) {
+				++matchLen;
+			}
+
+			op = writeSequence(dst, op, src, anchor, ip - anchor, ip - ref, matchLen);
+
+			ip += matchLen;
+			anchor = ip;
+
+			if (ip - 2 < limit) {
+				table[hash(readIntLE(src, ip - 2))] = ip - 2;
+			}
+		}
+
+		op = writeLiterals(dst, op, src, anchor, len - anchor, 0);
+
+		final MemByteBuffer zipped = new MemByteBuffer();
+		zipped.write(dst, 0, op);
+
+		return zipped;
+	}
+
+	public MemByteBuffer unzip(MemByteBuffer zipped) throws IOException {
+		final byte[] src = zipped.getInternal();
+		final int end = zipped.size();
+
+		if (end < 4) {
+			throw new IOException("LZ4: Error in data stream");
+		}
+
+		final int len = readInt(src, 0);
+
+		if (len < 0 || len > MAX_UNZIPPED_SIZE || len / MAX_RATIO > end - 4) {
+			throw new IOException("LZ4: Invalid unzipped length [" + len + "]!");
+		}
+
+		final byte[] dst = new byte[len];
+
+		int ip = 4;
+		int op = 0;
+
+		try {
+			while (ip < end) {
+				final int token = src[ip++] & 0xFF;
+
+				// literals
+
+				int literalLen = token >>> 4;
+
+				if (literalLen == 15) {
+					int val;
+					do {
+						val = src[ip++] & 0xFF;
+						literalLen += val;
+					} while (val == 255);
+				}
+
+				System.arraycopy(src, ip, dst, op, literalLen);
+
+				ip += literalLen;
+				op += literalLen;
+
+				if (ip == end) {
+					break; // last literals (!)
+				}
+
+				// match
+
+				final int offset = (src[ip] & 0xFF) | ((src[ip + 1] & 0xFF) << 8);
+				ip += 2;
+
+				int matchLen = token & 0x0F;
+
+				if (matchLen == 15) {
+					int val;
+					do {
+						val = src[ip++] & 0xFF;
+						matchLen += val;
+					} while (val == 255);
+				}
+
+				matchLen += MIN_MATCH;
+
+				final int ref = op - offset;
+
+				if (offset == 0 || ref < 0) {
+					throw new IOException("LZ4: Error in data stream");
+				}
+
+				if (offset >= matchLen) {
+					System.arraycopy(dst, ref, dst, op, matchLen);
+				} else {
+					for (int idx = 0; idx < matchLen; idx++) {
+						dst[op + idx] = dst[ref + idx]; // overlapping : repeating (!)
+					}
+				}
+
+				op += matchLen;
+			}
+		} catch (ArrayIndexOutOfBoundsException ex) {
+			throw new IOException("LZ4: Error in data stream", ex);
+		}
+
+		if (op != dst.length) {
+			throw new IOException("LZ4: Error in data stream");
+		}
+
+		return new MemByteBuffer(dst);
+	}
+
+	private static int writeSequence(byte[] dst, int op, byte[] src, int from, int literalLen, int offset, int matchLen) {
+		op = writeLiterals(dst, op, src, from, literalLen, Math.min(15, matchLen - MIN_MATCH));
+
+		dst[op++] = (byte) offset;
+		dst[op++] = (byte) (offset >>> 8);
+
+		if (matchLen - MIN_MATCH >= 15) {
+			op = writeLength(dst, op, matchLen - MIN_MATCH - 15);
+		}
+
+		return op;
+	}
+
+	/**
+	 * @param matchToken
+	 *            the low 4 bits of the token
+	 */
+	private static int writeLiterals(byte[] dst, int op, byte[] src, int from, int literalLen, int matchToken) {
+		dst[op++] = (byte) ((Math.min(15, literalLen) << 4) | matchToken);
+
+		if (literalLen >= 15) {
+			op = writeLength(dst, op, literalLen - 15);
+		}
+
+		System.arraycopy(src, from, dst, op, literalLen);
+
+		return op + literalLen;
+	}
+
+	private static int writeLength(byte[] dst, int op, int len) {
+		while (len >= 255) {
+			dst[op++] = (byte) 255;
+			len -= 255;
+		}
+		dst[op++] = (byte) len;
+
+		return op;
+	}
+
+	private static int hash(int val) {
+		return (val * -1640531535) >>> (32 - HASH_LOG);
+	}
+
+	private static int readIntLE(byte[] data, int pos) {
+		return (data[pos] & 0xFF) | ((data[pos + 1] & 0xFF) << 8) | ((data[pos + 2] & 0xFF) << 16) | ((data[pos + 3] & 0xFF) << 24);
+	}
+
+	private static int readInt(byte[] data, int pos) {
+		return ((data[pos] & 0xFF) << 24) | ((data[pos + 1] & 0xFF) << 16) | ((data[pos + 2] & 0xFF) << 8) | (data[pos + 3] & 0xFF);
+	}
+
+	private static void writeInt(byte[] data, int pos, int val) {
+		data[pos] = (byte) (val >>> 24);
+		data[pos + 1] = (byte) (val >>> 16);
+		data[pos + 2] = (byte) (val >>> 8);
+		data[pos + 3] = (byte) val;
+	}
+
+}
\ No newline at end of file
@@ -3,81 +3,160 @@ package mpo.dayon.common.squeeze;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+import SevenZip.Compression.LZMA.Decoder;
 import SevenZip.Compression.LZMA.Encoder;
 import mpo.dayon.common.buffer.MemByteBuffer;
+import mpo.dayon.common.utils.SystemUtilities;
 
 public class LZMA_Zipper extends Zipper {
+	/**
+	 * The dictionary is sized to the payload (power of 2) up to that size (8
+	 * MB by default).
+	 */
+	private static final int MAX_DICTIONARY_SIZE = SystemUtilities.getIntProperty(null, "dayon.lzma.maxDictionarySize", 1 << 23);
+
+	private static final int MIN_DICTIONARY_SIZE = 1 << 16;
+
+	/**
+	 * The encoders (and their match finder buffers) are reused from one
+	 * capture to the next - several ones when the chunks of a capture are
+	 * zipped in parallel.
+	 */
+	private final ConcurrentLinkedQueue<PooledEncoder> encoders = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * The decoders (and their window) are reused as well.
+	 */
+	private final ConcurrentLinkedQueue<Decoder> decoders = new ConcurrentLinkedQueue<>();
+
 	public LZMA_Zipper() {
 	}
 
 	public MemByteBuffer zip(MemByteBuffer unzipped) throws IOException {
-		final Encoder encoder = new SevenZip.Compression.LZMA.Encoder();
-
-		final InputStream inStream = new ByteArrayInputStream(unzipped.getInternal(), 0, unzipped.size());
+		PooledEncoder pooled = encoders.poll();
 
-		if (!encoder.SetDictionarySize(1 << 23)) {
-			throw new IOException("LZMA: Incorrect dictionary size");
-		}
-		if (!encoder.SetNumFastBytes(128)) {
-			throw new IOException("LZMA: Incorrect -fb value");
+		if (pooled == null) {
+			pooled = new PooledEncoder();
 		}
-		if (!encoder.SetMatchFinder(1)) {
-			throw new IOException("LZMA: Incorrect -mf value");
-		}
-		if (!encoder.SetLcLpPb(3, 0, 2)) {
-			throw new IOException("LZMA: Incorrect -lc or -lp or -pb value");
+
+		try {
+			return pooled.zip(unzipped);
+		} finally {
+			encoders.offer(pooled);
 		}
+	}
 
-		encoder.SetEndMarkerMode(false);
+	public MemByteBuffer unzip(MemByteBuffer zipped) throws IOException {
+		final InputStream inStream = new ByteArrayInputStream(zipped.getInternal(), 0, zipped.size());
 
-		final MemByteBuffer zipped = new MemByteBuffer();
+		final byte[] properties = new byte[5];
+		if (inStream.read(properties, 0, properties.length) != properties.length) {
+			throw new IOException("LZMA: input .lzma file is too short");
+		}
 
-		encoder.WriteCoderProperties(zipped);
+		Decoder decoder = decoders.poll();
 
-		final long fileSize = unzipped.size();
-		for (int i = 0; i < 8; i++) {
-			zipped.write((int) (fileSize >>> (8 * i)) & 0xFF);
+		if (decoder == null) {
+			decoder = new Decoder();
 		}
 
-		encoder.Code(inStream, zipped, -1, -1, null);
+		try {
+			// the window is re-allocated only if the dictionary size has changed (!)
+			if (!decoder.SetDecoderProperties(properties)) {
+				throw new IOException("LZMA: Incorrect stream properties");
+			}
+
+			long outSize = 0;
+			for (int i = 0; i < 8; i++) {
+				int v = inStream.read();
+				if (v < 0) {
+					throw new IOException("LZMA: Can't read stream size");
+				}
+				outSize |= ((long) v) << (8 * i);
+			}
+
+			final MemByteBuffer unzipped = new MemByteBuffer();
+
+			if (!decoder.Code(inStream, unzipped, outSize)) {
+				throw new IOException("LZMA: Error in data stream");
+			}
 
-		inStream.close();
+			inStream.close();
 
-		return zipped;
+			return unzipped;
+		} finally {
+			decoders.offer(decoder);
+		}
 	}
 
-	public MemByteBuffer unzip(MemByteBuffer zipped) throws IOException {
-		final InputStream inStream = new ByteArrayInputStream(zipped.getInternal(), 0, zipped.size());
+	/**
+	 * The smallest power of 2 holding the payload. The current size is kept
+	 * unless too small or much bigger (the match finder buffers are
+	 * re-allocated when the size changes and cleared for each capture).
+	 */
+	private static int computeDictionarySize(int current, int payload) {
+		int size = Math.min(MIN_DICTIONARY_SIZE, MAX_DICTIONARY_SIZE);
 
-		final byte[] properties = new byte[5];
-		if (inStream.read(properties, 0, properties.length) != properties.length) {
-			throw new IOException("LZMA: input .lzma file is too short");
+		while (size < payload && size < MAX_DICTIONARY_SIZE) {
+			size <<= 1;
 		}
 
-		final SevenZip.Compression.LZMA.Decoder decoder = new SevenZip.Compression.LZMA.Decoder();
-		if (!decoder.SetDecoderProperties(properties)) {
-			throw new IOException("LZMA: Incorrect stream properties");
+		size = Math.min(size, MAX_DICTIONARY_SIZE);
+
+		if (current >= size && current / 4 < size) {
+			return current;
 		}
+		return size;
+	}
+
+	private static class PooledEncoder {
+		private final Encoder encoder = new Encoder();
+
+		private int dictionarySize = -1;
 
-		long outSize = 0;
-		for (int i = 0; i < 8; i++) {
-			int v = inStream.read();
-			if (v < 0) {
-				throw new IOException("LZMA: Can't read stream size");
+		PooledEncoder() throws IOException {
+			if (!encoder.SetNumFastBytes(128)) {
+				throw new IOException("LZMA: Incorrect -fb value");
+			}
+			if (!encoder.SetMatchFinder(1)) {
+				throw new IOException("LZMA: Incorrect -mf value");
+			}
+			if (!encoder.SetLcLpPb(3, 0, 2)) {
+				throw new IOException("LZMA: Incorrect -lc or -lp or -pb value");
 			}
-			outSize |= ((long) v) << (8 * i);
+
+			encoder.SetEndMarkerMode(false);
 		}
 
-		final MemByteBuffer unzipped = new MemByteBuffer();
+		MemByteBuffer zip(MemByteBuffer unzipped) throws IOException {
+			final int xdictionarySize = computeDictionarySize(dictionarySize, unzipped.size());
 
-		if (!decoder.Code(inStream, unzipped, outSize)) {
-			throw new IOException("LZMA: Error in data stream");
-		}
+			if (xdictionarySize != dictionarySize) {
+				if (!encoder.SetDictionarySize(xdictionarySize)) {
+					throw new IOException("LZMA: Incorrect dictionary size");
+				}
+				dictionarySize = xdictionarySize;
+			}
+
+			final InputStream inStream = new ByteArrayInputStream(unzipped.getInternal(), 0, unzipped.size());
+
+			final MemByteBuffer zipped = new MemByteBuffer();
 
-		inStream.close();
+			encoder.WriteCoderProperties(zipped);
 
-		return unzipped;
+			final long fileSize = unzipped.size();
+			for (int i = 0; i < 8; i++) {
+				zipped.write((int) (fileSize >>> (8 * i)) & 0xFF);
+			}
+
+			encoder.Code(inStream, zipped, -1, -1, null);
+
+			inStream.close();
+
+			return zipped;
+		}
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,278 @@
+package mpo.dayon.common.squeeze;
+
+import java.util.Arrays;
+
+import mpo.dayon.common.capture.CaptureTile;
+import mpo.dayon.common.log.Log;
+
+/**
+ * Open-addressing table of the cache ids (no boxing) and a doubly linked LRU
+ * list of the entries (index arrays, no per-entry object) : a hit, an insert
+ * and an eviction are O(1).
+ * <p/>
+ * The compressor and the de-compressor are performing the same operations in
+ * the same order : both caches are evicting the same tiles (the least
+ * recently used ones) whatever the storage of the tiles is.
+ */
+abstract class LruTileCache extends TileCache {
+	private static final int NONE = -1;
+
+	private final int maxSize;
+
+	private final int purgeSize;
+
+	/**
+	 * Entry index + 1 (0 : empty slot); linear probing.
+	 */
+	private final int[] table;
+
+	private final int mask;
+
+	private final long[] cacheIds;
+
+	/**
+	 * Towards the most recently used entry (the free entries are not linked
+	 * this way).
+	 */
+	private final int[] previous;
+
+	/**
+	 * Towards the least recently used entry (or the next free entry).
+	 */
+	private final int[] next;
+
+	/**
+	 * The most recently used entry.
+	 */
+	private int head;
+
+	/**
+	 * The least recently used entry.
+	 */
+	private int tail;
+
+	private int free;
+
+	private int size;
+
+	private int hits;
+
+	LruTileCache(int maxSize, int purgeSize) {
+		this.maxSize = maxSize;
+		this.purgeSize = purgeSize;
+
+		final int capacity = Integer.highestOneBit(Math.max(2, Math.min(maxSize, 1 << 29)) * 2 - 1) * 2; // at most half full (!)
+
+		this.table = new int[capacity];
+		this.mask = capacity - 1;
+
+		this.cacheIds = new long[maxSize];
+		this.previous = new int[maxSize];
+		this.next = new int[maxSize];
+
+		reset();
+	}
+
+	private void reset() {
+		Arrays.fill(table, 0);
+
+		for (int idx = 0; idx < maxSize; idx++) {
+			next[idx] = idx + 1 < maxSize ? idx + 1 : NONE;
+		}
+
+		free = maxSize > 0 ? 0 : NONE;
+		head = NONE;
+		tail = NONE;
+		size = 0;
+	}
+
+	/**
+	 * The tile of a new entry or a newer tile for an existing entry.
+	 */
+	abstract void store(int entry, long cacheId, CaptureTile tile);
+
+	abstract CaptureTile load(int entry, long cacheId);
+
+	abstract void release(int entry);
+
+	abstract void releaseAll();
+
+	@Override
+	public long getCacheId(CaptureTile tile) {
+		return tile.getChecksum();
+	}
+
+	@Override
+	public void add(CaptureTile tile) {
+		final long cacheId = getCacheId(tile);
+
+		final int slot = slotOf(cacheId);
+
+		if (table[slot] != 0) {
+			final int entry = table[slot] - 1;
+
+			store(entry, cacheId, tile);
+			moveToHead(entry);
+			return;
+		}
+
+		if (size < maxSize) {
+			final int entry = free;
+			free = next[entry];
+
+			cacheIds[entry] = cacheId;
+			store(entry, cacheId, tile);
+
+			table[slot] = entry + 1;
+			linkHead(entry);
+
+			++size;
+		}
+	}
+
+	@Override
+	public CaptureTile get(long cacheId) {
+		final int slot = slotOf(cacheId);
+
+		if (table[slot] != 0) {
+			final int entry = table[slot] - 1;
+
+			++hits;
+			moveToHead(entry);
+			return load(entry, cacheId);
+		}
+
+		return CaptureTile.MISSING;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		Log.info("Clearing the cache...");
+
+		reset();
+		releaseAll();
+	}
+
+	/**
+	 * Called once a capture has been processed either in the assisted or in the
+	 * assistant side.
+	 * <p/>
+	 * Opportunity to remove oldest entries; not done during the processing of a
+	 * capture to keep references to cached tiles in the network messages
+	 * consistent - easier to debug this way I guess ...
+	 */
+	@Override
+	public void onCaptureProcessed() {
+		if (size > 0 && size >= maxSize) {
+			Log.info("Purging the cache...");
+
+			while (size > purgeSize) {
+				remove(tail);
+			}
+		}
+	}
+
+	@Override
+	public void clearHits() {
+		hits = 0;
+	}
+
+	@Override
+	public int getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return the slot of the cache id or the empty slot it would go into
+	 */
+	private int slotOf(long cacheId) {
+		int slot = hash(cacheId);
+
+		while (table[slot] != 0 && cacheIds[table[slot] - 1] != cacheId) {
+			slot = (slot + 1) & mask;
+		}
+
+		return slot;
+	}
+
+	private int hash(long cacheId) {
+		final int hash = (int) (cacheId ^ (cacheId >>> 32)) * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	private void remove(int entry) {
+		int slot = slotOf(cacheIds[entry]);
+
+		// backward shift : no tombstone (!)
+		int xslot = slot;
+
+		while (true) {
+			xslot = (xslot + 1) & mask;
+
+			if (table[xslot] == 0) {
+				break;
+			}
+
+			final int home = hash(cacheIds[table[xslot] - 1]);
+
+			// the entry at xslot can move back into slot if its home is not
+			// within ]slot, xslot] (cyclic)
+			if (((xslot - home) & mask) >= ((xslot - slot) & mask)) {
+				table[slot] = table[xslot];
+				slot = xslot;
+			}
+		}
+
+		table[slot] = 0;
+
+		unlink(entry);
+		release(entry);
+
+		next[entry] = free;
+		free = entry;
+
+		--size;
+	}
+
+	private void moveToHead(int entry) {
+		if (entry != head) {
+			unlink(entry);
+			linkHead(entry);
+		}
+	}
+
+	private void linkHead(int entry) {
+		previous[entry] = NONE;
+		next[entry] = head;
+
+		if (head != NONE) {
+			previous[head] = entry;
+		} else {
+			tail = entry;
+		}
+
+		head = entry;
+	}
+
+	private void unlink(int entry) {
+		final int xprevious = previous[entry];
+		final int xnext = next[entry];
+
+		if (xprevious != NONE) {
+			next[xprevious] = xnext;
+		} else {
+			head = xnext;
+		}
+
+		if (xnext != NONE) {
+			previous[xnext] = xprevious;
+		} else {
+			tail = xprevious;
+		}
+	}
+}
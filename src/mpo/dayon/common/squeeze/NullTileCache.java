@@ -9,7 +9,7 @@ public class NullTileCache extends TileCache {
 	}
 
 	@Override
-	public int getCacheId(CaptureTile tile) {
+	public long getCacheId(CaptureTile tile) {
 		return 0;
 	}
 
@@ -18,7 +18,7 @@ public class NullTileCache extends TileCache {
 	}
 
 	@Override
-	public CaptureTile get(int cachedId) {
+	public CaptureTile get(long cachedId) {
 		return CaptureTile.MISSING;
 	}
 
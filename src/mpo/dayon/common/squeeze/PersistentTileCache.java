@@ -0,0 +1,93 @@
+package mpo.dayon.common.squeeze;
+
+import mpo.dayon.common.capture.CaptureTile;
+
+/**
+ * A regular cache (i.e., the current connection) backed by the tile store :
+ * the tiles added are kept in the store and the tiles shared for the current
+ * connection are found even if never sent before.
+ * <p/>
+ * Both sides are resolving the same tiles from the store (the assistant has
+ * loaded them before telling the assisted) : the shared tiles are not added
+ * to the regular cache and are kept through a reset.
+ *
+ * @see PersistentTileStore
+ */
+public class PersistentTileCache extends TileCache {
+	private final TileCache cache;
+
+	private final PersistentTileStore store;
+
+	private int hits;
+
+	private PersistentTileCache(TileCache cache, PersistentTileStore store) {
+		this.cache = cache;
+		this.store = store;
+	}
+
+	/**
+	 * @param pixels
+	 *            false if the tiles are never read from the cache (i.e.,
+	 *            compressor)
+	 * @return the cache as is if the tile store is disabled
+	 */
+	public static TileCache create(TileCache cache, boolean pixels) {
+		final PersistentTileStore store = PersistentTileStore.get(pixels);
+
+		return store == null ? cache : new PersistentTileCache(cache, store);
+	}
+
+	@Override
+	public long getCacheId(CaptureTile tile) {
+		return cache.getCacheId(tile);
+	}
+
+	@Override
+	public void add(CaptureTile tile) {
+		cache.add(tile);
+		store.add(tile);
+	}
+
+	@Override
+	public CaptureTile get(long cacheId) {
+		final CaptureTile tile = cache.get(cacheId);
+
+		if (tile != CaptureTile.MISSING) {
+			return tile;
+		}
+
+		final CaptureTile shared = store.getShared(cacheId);
+
+		if (shared != CaptureTile.MISSING) {
+			++hits;
+		}
+
+		return shared;
+	}
+
+	@Override
+	public int size() {
+		return cache.size();
+	}
+
+	@Override
+	public void clear() {
+		cache.clear();
+	}
+
+	@Override
+	public void onCaptureProcessed() {
+		cache.onCaptureProcessed();
+	}
+
+	@Override
+	public void clearHits() {
+		cache.clearHits();
+		hits = 0;
+	}
+
+	@Override
+	public int getHits() {
+		return cache.getHits() + hits;
+	}
+}
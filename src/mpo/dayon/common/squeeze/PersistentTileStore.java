@@ -0,0 +1,338 @@
+package mpo.dayon.common.squeeze;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import org.jetbrains.annotations.Nullable;
+
+import mpo.dayon.common.capture.CaptureTile;
+import mpo.dayon.common.capture.TileHasher;
+import mpo.dayon.common.log.Log;
+import mpo.dayon.common.utils.SystemUtilities;
+
+/**
+ * The tiles sent during the previous connections : a memory-mapped file of
+ * fixed-size slots (4-way set-associative, keyed by the cache id) surviving
+ * the reconnections.
+ * <p/>
+ * The assisted is only keeping the cache ids; the assistant the pixels as
+ * well. Once connected (HELLO), the assisted sends a summary of its cache ids
+ * and the assistant answers with the ones it holds (and has loaded for that
+ * connection) : those tiles are then sent as cached tiles from the very first
+ * capture.
+ * <p/>
+ * A tile is written first and its cache id last; the tiles are verified
+ * (hash) when loaded.
+ * <p/>
+ * Disabled unless -Ddayon.tileStore.size=N (slots) is set. Note that the
+ * assistant file (~/.dayon/dayon_assistant.tiles) is keeping the actual
+ * screen content (gray levels) of every assisted it has been connected to,
+ * not encrypted and until overwritten by newer tiles (or the file deleted);
+ * the assisted file (~/.dayon/dayon_assisted.tiles) only the 64 bits hashes
+ * of its tiles.
+ *
+ * @see PersistentTileCache
+ */
+public class PersistentTileStore {
+	/**
+	 * Number of slots (0 : disabled); opt-in as the screen content is kept on
+	 * disk (e.g., 32768 : about 34 MB for the assistant).
+	 */
+	private static final int SIZE = SystemUtilities.getIntProperty(null, "dayon.tileStore.size", 0);
+
+	/**
+	 * The larger tiles are not kept (the default tile being 32x32).
+	 */
+	private static final int MAX_TILE_BYTES = 32 * 32;
+
+	private static final int MAGIC_NUMBER = 0xDA7011E5;
+
+	/**
+	 * 2 : the tile geometry is part of the cache ids.
+	 */
+	private static final int VERSION = 2;
+
+	private static final int HEADER_SIZE = 16;
+
+	private static final int WAYS = 4;
+
+	/**
+	 * Assisted : a tile shared for the current connection.
+	 *
+	 * @see #getShared(long)
+	 */
+	private static final CaptureTile SHARED = new CaptureTile(-1, -1, -1, 0, 0, 2, 1, new byte[] { 0, 1 });
+
+	/**
+	 * The cache id (0 : empty) [+ width (short) + height (short) + unused (int)
+	 * + pixels].
+	 */
+	private final int slotSize;
+
+	private final boolean pixels;
+
+	private final int bucketCount;
+
+	private final MappedByteBuffer buffer;
+
+	/**
+	 * The cache ids the assistant has loaded for the current connection
+	 * (assisted : sorted).
+	 */
+	private volatile long[] sharedIds = new long[0];
+
+	/**
+	 * The tiles loaded for the current connection (assistant).
+	 */
+	private volatile TileCache sharedTiles = new NullTileCache();
+
+	private static boolean initialized;
+
+	private static PersistentTileStore instance;
+
+	private PersistentTileStore(File file, int size, boolean pixels) throws IOException {
+		this.pixels = pixels;
+		this.slotSize = pixels ? 16 + MAX_TILE_BYTES : 8;
+		this.bucketCount = Math.max(1, Math.min(size, (Integer.MAX_VALUE - HEADER_SIZE) / slotSize) / WAYS);
+
+		final long length = HEADER_SIZE + (long) bucketCount * WAYS * slotSize;
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			final boolean valid = raf.length() == length && raf.readInt() == MAGIC_NUMBER && raf.readInt() == VERSION && raf.readInt() == slotSize
+					&& raf.readInt() == bucketCount;
+
+			if (!valid) {
+				Log.info("Creating the tile store [" + file.getAbsolutePath() + "]");
+
+				raf.setLength(0); // all zeros (!)
+				raf.setLength(length);
+				raf.seek(0);
+				raf.writeInt(MAGIC_NUMBER);
+				raf.writeInt(VERSION);
+				raf.writeInt(slotSize);
+				raf.writeInt(bucketCount);
+			}
+
+			this.buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length); // still valid once closed (!)
+		}
+
+		Log.info("Tile store opened [" + file.getAbsolutePath() + "][slots:" + bucketCount * WAYS + "][pixels:" + pixels + "]");
+	}
+
+	/**
+	 * One store per process (i.e., assisted or assistant).
+	 *
+	 * @param pixels
+	 *            false on the assisted side (the same value for a given
+	 *            process)
+	 * @return null if disabled (or not available)
+	 */
+	@Nullable
+	public static synchronized PersistentTileStore get(boolean pixels) {
+		if (!initialized) {
+			initialized = true;
+
+			if (SIZE > 0) {
+				final File file = SystemUtilities.getOrCreateAppFile(SystemUtilities.getApplicationName() + ".tiles");
+
+				if (file != null) {
+					try {
+						instance = new PersistentTileStore(file, SIZE, pixels);
+					} catch (IOException ex) {
+						Log.warn("Could not open the tile store [" + file.getAbsolutePath() + "]!", ex);
+					}
+				}
+			}
+		}
+		return instance;
+	}
+
+	public synchronized void add(CaptureTile tile) {
+		final long cacheId = tile.getChecksum();
+
+		if (cacheId == 0 || (pixels && tile.getWidth() * tile.getHeight() > MAX_TILE_BYTES)) {
+			return;
+		}
+
+		final int bucket = bucketOf(cacheId);
+
+		int way = -1;
+
+		for (int idx = 0; idx < WAYS; idx++) {
+			final long xcacheId = buffer.getLong(positionOf(bucket, idx));
+
+			if (xcacheId == cacheId) {
+				return;
+			}
+
+			if (xcacheId == 0 && way == -1) {
+				way = idx;
+			}
+		}
+
+		if (way == -1) {
+			way = (int) (cacheId >>> 40) & (WAYS - 1); // replacing one of them
+		}
+
+		final int position = positionOf(bucket, way);
+
+		buffer.putLong(position, 0);
+
+		if (pixels) {
+			final ByteBuffer xbuffer = buffer.duplicate();
+			xbuffer.position(position + 16);
+			xbuffer.put(tile.getCapture().getInternal(), 0, tile.getCapture().size());
+
+			buffer.putShort(position + 8, (short) tile.getWidth());
+			buffer.putShort(position + 10, (short) tile.getHeight());
+		}
+
+		buffer.putLong(position, cacheId);
+	}
+
+	/**
+	 * Assisted to assistant (HELLO) : a subset of the cache ids when above
+	 * BloomFilter.MAX_COUNT (the assistant would reject the summary).
+	 */
+	public synchronized BloomFilter summarize() {
+		int count = 0;
+
+		for (int slot = 0; slot < bucketCount * WAYS; slot++) {
+			if (buffer.getLong(HEADER_SIZE + slot * slotSize) != 0) {
+				++count;
+			}
+		}
+
+		final int summarized = Math.min(count, BloomFilter.MAX_COUNT);
+
+		final BloomFilter summary = new BloomFilter(summarized);
+
+		int added = 0;
+
+		for (int slot = 0; slot < bucketCount * WAYS && added < summarized; slot++) {
+			final long cacheId = buffer.getLong(HEADER_SIZE + slot * slotSize);
+
+			if (cacheId != 0) {
+				summary.add(cacheId);
+				++added;
+			}
+		}
+
+		Log.info("Tile store summary [tiles:" + count + "][summarized:" + summarized + "][bytes:" + summary.getWords().length * 8 + "]");
+
+		return summary;
+	}
+
+	/**
+	 * Assistant : loads the tiles of the store the assisted might hold as
+	 * well (i.e., a new connection).
+	 *
+	 * @return the cache ids of the loaded tiles (assistant to assisted)
+	 */
+	public synchronized long[] share(BloomFilter summary) {
+		long[] cacheIds = new long[64];
+		int count = 0;
+
+		for (int slot = 0; slot < bucketCount * WAYS; slot++) {
+			final long cacheId = buffer.getLong(HEADER_SIZE + slot * slotSize);
+
+			if (cacheId != 0 && summary.mightContain(cacheId)) {
+				if (count == cacheIds.length) {
+					cacheIds = Arrays.copyOf(cacheIds, 2 * count);
+				}
+				cacheIds[count++] = cacheId;
+			}
+		}
+
+		final TileCache tiles = count == 0 ? new NullTileCache() : new SlabTileCache(count, count);
+
+		int loaded = 0;
+
+		for (int idx = 0; idx < count; idx++) {
+			final CaptureTile tile = load(cacheIds[idx]);
+
+			if (tile != null) {
+				tiles.add(tile);
+				cacheIds[loaded++] = cacheIds[idx];
+			}
+		}
+
+		sharedTiles = tiles;
+
+		Log.info("Tile store shared [tiles:" + loaded + "]");
+
+		return Arrays.copyOf(cacheIds, loaded);
+	}
+
+	/**
+	 * Assisted : the tiles the assistant has loaded.
+	 *
+	 * @see #share(BloomFilter)
+	 */
+	public void setShared(long[] cacheIds) {
+		final long[] xcacheIds = cacheIds.clone();
+		Arrays.sort(xcacheIds);
+
+		sharedIds = xcacheIds;
+
+		Log.info("Tile store shared [tiles:" + xcacheIds.length + "]");
+	}
+
+	/**
+	 * @return MISSING if not shared for the current connection; the assisted
+	 *         is not keeping the pixels : the returned tile is only telling the
+	 *         assistant holds it.
+	 */
+	CaptureTile getShared(long cacheId) {
+		if (pixels) {
+			return sharedTiles.get(cacheId);
+		}
+
+		return Arrays.binarySearch(sharedIds, cacheId) >= 0 ? SHARED : CaptureTile.MISSING;
+	}
+
+	@Nullable
+	private CaptureTile load(long cacheId) {
+		final int bucket = bucketOf(cacheId);
+
+		for (int idx = 0; idx < WAYS; idx++) {
+			final int position = positionOf(bucket, idx);
+
+			if (buffer.getLong(position) == cacheId) {
+				final int width = buffer.getShort(position + 8);
+				final int height = buffer.getShort(position + 10);
+
+				if (width <= 0 || height <= 0 || width * height > MAX_TILE_BYTES) {
+					return null;
+				}
+
+				final byte[] data = new byte[width * height];
+
+				final ByteBuffer xbuffer = buffer.duplicate();
+				xbuffer.position(position + 16);
+				xbuffer.get(data);
+
+				if (TileHasher.get().hash(data, width, height) != cacheId) {
+					return null; // partially written (!)
+				}
+
+				return new CaptureTile(-1, -1, cacheId, 0, 0, width, height, data);
+			}
+		}
+
+		return null;
+	}
+
+	private int bucketOf(long cacheId) {
+		return (int) ((cacheId & 0x7FFFFFFFFFFFFFFFL) % bucketCount);
+	}
+
+	private int positionOf(int bucket, int way) {
+		return HEADER_SIZE + (bucket * WAYS + way) * slotSize;
+	}
+}
@@ -1,13 +1,16 @@
 package mpo.dayon.common.squeeze;
 
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.Map;
+import java.util.Arrays;
 
 import mpo.dayon.common.capture.CaptureTile;
 import mpo.dayon.common.log.Log;
 
-public class RegularTileCache extends TileCache {
+/**
+ * The cached tiles are kept as is (heap).
+ *
+ * @see SlabTileCache
+ */
+public class RegularTileCache extends LruTileCache {
 	/**
 	 * Maximum number of tiles; currently a tile is basically a 32x32 byte array
 	 * (i.e., 1K).
@@ -19,96 +22,33 @@ public class RegularTileCache extends TileCache {
 	 */
 	public static final int DEFAULT_PURGE_SIZE = 14 * 1024;
 
-	private final Map<Integer, CaptureTile> tiles = new HashMap<>();
-
-	private final LinkedList<Integer> lru = new LinkedList<>();
-
-	private final int maxSize;
-
-	private final int purgeSize;
-
-	private int hits;
+	private final CaptureTile[] tiles;
 
 	public RegularTileCache(int maxSize, int purgeSize) {
-		this.maxSize = maxSize;
-		this.purgeSize = purgeSize;
-
-		Log.info("Regular cache created [MAX:" + maxSize + "][PURGE:" + purgeSize + "]");
-	}
-
-	@Override
-	public int getCacheId(CaptureTile tile) {
-		final long cs = tile.getChecksum();
-
-		if (cs < 0 || cs > 4294967295L) {
-			throw new RuntimeException("Ouch [" + cs + "]");
-		}
-
-		return (int) cs;
-	}
+		super(maxSize, purgeSize);
 
-	@Override
-	public void add(CaptureTile tile) {
-		if (tiles.size() < maxSize) {
-			final Integer cacheId = getCacheId(tile);
+		this.tiles = new CaptureTile[maxSize];
 
-			tiles.put(cacheId, tile);
-			lru.addFirst(cacheId);
-		}
+		Log.info("Regular cache created [MAX:" + maxSize + "][PURGE:" + purgeSize + "]");
 	}
 
 	@Override
-	public CaptureTile get(int cacheId) {
-		final Integer xcacheId = cacheId;
-		final CaptureTile tile = tiles.get(xcacheId);
-
-		if (tile != null) {
-			++hits;
-			lru.addFirst(xcacheId);
-			return tile;
-		}
-
-		return CaptureTile.MISSING;
+	void store(int entry, long cacheId, CaptureTile tile) {
+		tiles[entry] = tile;
 	}
 
 	@Override
-	public int size() {
-		return tiles.size();
-	}
-
-	public void clear() {
-		Log.info("Clearing the cache...");
-
-		tiles.clear();
-		lru.clear();
-	}
-
-	/**
-	 * Called once a capture has been processed either in the assisted or in the
-	 * assistant side.
-	 * <p/>
-	 * Opportunity to remove oldest entries; not done during the processing of a
-	 * capture to keep references to cached tiles in the network messages
-	 * consistent - easier to debug this way I guess ...
-	 */
-	public void onCaptureProcessed() {
-		if (tiles.size() > 0 && tiles.size() >= maxSize) {
-			Log.info("Purging the cache...");
-
-			while (tiles.size() > purgeSize) {
-				final Integer removed = lru.removeFirst();
-				tiles.remove(removed);
-			}
-		}
+	CaptureTile load(int entry, long cacheId) {
+		return tiles[entry];
 	}
 
 	@Override
-	public void clearHits() {
-		hits = 0;
+	void release(int entry) {
+		tiles[entry] = null;
 	}
 
 	@Override
-	public int getHits() {
-		return hits;
+	void releaseAll() {
+		Arrays.fill(tiles, null);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,167 @@
+package mpo.dayon.common.squeeze;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import mpo.dayon.common.capture.CaptureTile;
+import mpo.dayon.common.log.Log;
+
+/**
+ * The pixels of the cached tiles are kept off-heap in fixed-size slots of a
+ * few direct buffers (slabs) : no tile object to keep alive (and to move
+ * around by the GC) whatever the size of the cache.
+ * <p/>
+ * A tile is materialized (i.e., short-lived) when found in the cache : that's
+ * the tile written into the screen of the assistant.
+ * <p/>
+ * One set of slabs per power of 2 of the tile size (the tiles have not all
+ * the same size).
+ */
+public class SlabTileCache extends LruTileCache {
+	private static final int MIN_SLOT_BITS = 6; // 8x8
+
+	private static final int SLAB_SIZE = 1024 * 1024;
+
+	private static final int NO_SLOT = -1;
+
+	private final Slabs[] slabs = new Slabs[32];
+
+	/**
+	 * Per entry : the size class (bits) and the slot within it.
+	 */
+	private final byte[] slotBits;
+
+	private final int[] slots;
+
+	private final int[] widths;
+
+	private final int[] heights;
+
+	public SlabTileCache(int maxSize, int purgeSize) {
+		super(maxSize, purgeSize);
+
+		this.slotBits = new byte[maxSize];
+		this.slots = new int[maxSize];
+		this.widths = new int[maxSize];
+		this.heights = new int[maxSize];
+
+		Arrays.fill(slots, NO_SLOT);
+
+		Log.info("Slab cache created [MAX:" + maxSize + "][PURGE:" + purgeSize + "]");
+	}
+
+	@Override
+	void store(int entry, long cacheId, CaptureTile tile) {
+		release(entry);
+
+		final int size = tile.getWidth() * tile.getHeight();
+		final int bits = Math.max(MIN_SLOT_BITS, 32 - Integer.numberOfLeadingZeros(size - 1));
+
+		if (slabs[bits] == null) {
+			slabs[bits] = new Slabs(bits);
+		}
+
+		final int slot = slabs[bits].allocate();
+
+		slabs[bits].put(slot, tile.getCapture().getInternal(), size);
+
+		slotBits[entry] = (byte) bits;
+		slots[entry] = slot;
+		widths[entry] = tile.getWidth();
+		heights[entry] = tile.getHeight();
+	}
+
+	@Override
+	CaptureTile load(int entry, long cacheId) {
+		final int width = widths[entry];
+		final int height = heights[entry];
+
+		final byte[] data = new byte[width * height];
+
+		slabs[slotBits[entry]].get(slots[entry], data);
+
+		return new CaptureTile(-1, -1, cacheId, 0, 0, width, height, data);
+	}
+
+	@Override
+	void release(int entry) {
+		if (slots[entry] != NO_SLOT) {
+			slabs[slotBits[entry]].free(slots[entry]);
+			slots[entry] = NO_SLOT;
+		}
+	}
+
+	/**
+	 * The slabs are kept (re-used).
+	 */
+	@Override
+	void releaseAll() {
+		Arrays.fill(slots, NO_SLOT);
+
+		for (final Slabs xslabs : slabs) {
+			if (xslabs != null) {
+				xslabs.clear();
+			}
+		}
+	}
+
+	/**
+	 * The slots of a given size : allocated on demand (one slab at a time).
+	 */
+	private static class Slabs {
+		private final int slotSize;
+
+		private final int slotsPerSlab;
+
+		private final List<ByteBuffer> buffers = new ArrayList<>();
+
+		private int used;
+
+		private int[] freeSlots = new int[64];
+
+		private int freeCount;
+
+		Slabs(int bits) {
+			this.slotSize = 1 << bits;
+			this.slotsPerSlab = Math.max(1, SLAB_SIZE / slotSize);
+		}
+
+		int allocate() {
+			if (freeCount > 0) {
+				return freeSlots[--freeCount];
+			}
+
+			if (used == buffers.size() * slotsPerSlab) {
+				buffers.add(ByteBuffer.allocateDirect(slotsPerSlab * slotSize));
+			}
+
+			return used++;
+		}
+
+		void free(int slot) {
+			if (freeCount == freeSlots.length) {
+				freeSlots = Arrays.copyOf(freeSlots, 2 * freeCount);
+			}
+			freeSlots[freeCount++] = slot;
+		}
+
+		void clear() {
+			used = 0;
+			freeCount = 0;
+		}
+
+		void put(int slot, byte[] data, int len) {
+			final ByteBuffer buffer = buffers.get(slot / slotsPerSlab).duplicate();
+			buffer.position((slot % slotsPerSlab) * slotSize);
+			buffer.put(data, 0, len);
+		}
+
+		void get(int slot, byte[] data) {
+			final ByteBuffer buffer = buffers.get(slot / slotsPerSlab).duplicate();
+			buffer.position((slot % slotsPerSlab) * slotSize);
+			buffer.get(data);
+		}
+	}
+}
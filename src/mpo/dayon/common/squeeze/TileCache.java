@@ -6,11 +6,16 @@ public abstract class TileCache {
 	TileCache() {
 	}
 
-	public abstract int getCacheId(CaptureTile tile);
+	/**
+	 * The 64 bits hash of the tile.
+	 *
+	 * @see mpo.dayon.common.capture.TileHasher
+	 */
+	public abstract long getCacheId(CaptureTile tile);
 
 	public abstract void add(CaptureTile tile);
 
-	public abstract CaptureTile get(int cachedId);
+	public abstract CaptureTile get(long cachedId);
 
 	public abstract int size();
 
@@ -9,4 +9,24 @@ abstract class Zipper {
 
 	public abstract MemByteBuffer unzip(MemByteBuffer zipped) throws IOException;
 
+	/**
+	 * @return true if a capture depends on the previous ones (i.e., zipped and
+	 *         unzipped in the same order by a single thread)
+	 */
+	boolean isStateful() {
+		return false;
+	}
+
+	/**
+	 * The capture reset flag : forgets about the previous captures.
+	 */
+	void reset() {
+	}
+
+	/**
+	 * Not used anymore : releases the native resources (if any).
+	 */
+	void release() {
+	}
+
 }
@@ -7,33 +7,75 @@ import java.awt.Rectangle;
 import java.awt.Robot;
 import java.awt.Toolkit;
 import java.awt.peer.RobotPeer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.jetbrains.annotations.Nullable;
 
 import mpo.dayon.common.capture.Gray8Bits;
 import sun.awt.ComponentFactory;
 
 public abstract class ScreenUtilities {
-	private static final RobotPeer robot;
+	/**
+	 * Initialized on the first capture only : the conversions do not require
+	 * a screen (e.g., headless checks).
+	 */
+	private static class Grabber {
+		private static final RobotPeer robot;
 
-	private static final Rectangle SCREEN;
+		private static final Rectangle SCREEN;
 
-	static {
-		try {
-			final Toolkit toolkit = Toolkit.getDefaultToolkit();
-			SCREEN = new Rectangle(0, 0, toolkit.getScreenSize().width, toolkit.getScreenSize().height);
-
-			final GraphicsDevice screen = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice();
-			robot = ((ComponentFactory) toolkit).createRobot(new Robot(), screen);
-		} catch (AWTException ex) {
-			throw new RuntimeException("Could not initialize the AWT robot!", ex);
+		static {
+			try {
+				final Toolkit toolkit = Toolkit.getDefaultToolkit();
+				SCREEN = new Rectangle(0, 0, toolkit.getScreenSize().width, toolkit.getScreenSize().height);
+
+				final GraphicsDevice screen = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice();
+				robot = ((ComponentFactory) toolkit).createRobot(new Robot(), screen);
+			} catch (AWTException ex) {
+				throw new RuntimeException("Could not initialize the AWT robot!", ex);
+			}
+		}
+	}
+
+	/**
+	 * Number of pixels below which a band of rows is not split anymore during
+	 * a parallel conversion.
+	 */
+	private static final int CONVERSION_BAND_MIN_SIZE = 64 * 1024;
+
+	/**
+	 * Screen-rectangle RGB buffer to screen-rectangle gray buffer.
+	 *
+	 * @param pool
+	 *            if not null the conversion is split into bands of rows
+	 *            processed in parallel (same result).
+	 * @param gray
+	 *            if not null (and the size of the RGB buffer), the buffer the
+	 *            capture is converted into (i.e., reused buffer).
+	 * @see #captureRGB()
+	 */
+	public static byte[] rgbToGray8(Gray8Bits quantization, int[] rgb, int width, @Nullable ForkJoinPool pool, @Nullable byte[] gray) {
+		final byte[] xgray = (gray != null && gray.length == rgb.length) ? gray : new byte[rgb.length];
+
+		if (pool == null) {
+			doRgbToGray8(xgray, 0, quantization, rgb, 0, rgb.length);
+		} else {
+			pool.invoke(new RgbToGray8(xgray, quantization, rgb, width, 0, rgb.length));
 		}
+
+		return xgray;
 	}
 
-	public static byte[] captureGray(Gray8Bits quantization) {
-		return rgbToGray8(quantization, captureRGB(SCREEN));
+	/**
+	 * The raw RGB screen (i.e., no gray conversion).
+	 */
+	public static int[] captureRGB() {
+		return captureRGB(Grabber.SCREEN);
 	}
 
 	private static int[] captureRGB(Rectangle bounds) {
-		return robot.getRGBPixels(bounds);
+		return Grabber.robot.getRGBPixels(bounds);
 	}
 
 	public static byte[] captureGray(Rectangle bounds, Gray8Bits quantization) {
@@ -43,34 +85,123 @@ public abstract class ScreenUtilities {
 	private static byte[] rgbToGray8(Gray8Bits quantization, int[] rgb) {
 		final byte[] gray = new byte[rgb.length];
 
-		doRgbToGray8(gray, quantization, rgb);
+		doRgbToGray8(gray, 0, quantization, rgb, 0, rgb.length);
 
 		return gray;
 	}
 
-	private static void doRgbToGray8(byte[] gray, Gray8Bits quantization, int[] rgb) {
+	/**
+	 * Screen-rectangle RGB buffer to tile-rectangle gray buffer.
+	 */
+	public static byte[] rgbToGray8(Gray8Bits quantization, int[] rgb, int width, int offset, int tw, int th) {
+		final byte[] gray = new byte[tw * th];
+
+		int srcPos = offset;
+		int destPos = 0;
+
+		while (destPos < gray.length) {
+			doRgbToGray8(gray, destPos, quantization, rgb, srcPos, srcPos + tw);
+
+			srcPos += width;
+			destPos += tw;
+		}
+
+		return gray;
+	}
+
+	/**
+	 * Gray levels (already quantized) to less gray levels : same result as a
+	 * conversion from the RGB with that quantization (the levels are rounded
+	 * UP to a multiple of the factor).
+	 */
+	public static byte[] quantize(Gray8Bits quantization, byte[] gray) {
 		final byte[] xlevels = grays[quantization.ordinal()];
+		final byte[] xgray = new byte[gray.length];
 
-		int prev_rgb = -1;
-		byte prev_gray = -1;
+		for (int idx = 0; idx < gray.length; idx++) {
+			xgray[idx] = xlevels[gray[idx] & 0xFF];
+		}
+
+		return xgray;
+	}
+
+	/**
+	 * @param grayPos
+	 *            where the gray level of the pixel rgb[from] goes
+	 */
+	private static void doRgbToGray8(byte[] gray, int grayPos, Gray8Bits quantization, int[] rgb, int from, int to) {
+		if (from >= to) {
+			return;
+		}
 
-		for (int idx = 0; idx < rgb.length; idx++) {
+		final byte[] xlevels = grays[quantization.ordinal()];
+
+		// seeded with the first pixel : any value is a valid pixel (e.g.,
+		// 0xFFFFFFFF is an opaque white) so there is no sentinel (!)
+		int prev_rgb = rgb[from];
+		byte prev_gray = toGray8(xlevels, prev_rgb);
+
+		for (int idx = from, pos = grayPos; idx < to; idx++, pos++) {
 			final int pixel = rgb[idx];
 
-			if (pixel == prev_rgb) {
-				gray[idx] = prev_gray;
-				continue;
+			if (pixel != prev_rgb) {
+				prev_rgb = pixel;
+				prev_gray = toGray8(xlevels, pixel);
 			}
 
-			final int red = (pixel & 0x00FF0000) >> 16;
-			final int green_blue = pixel & 0x0000FFFF;
+			gray[pos] = prev_gray;
+		}
+	}
 
-			final int level = (red_levels[red] + green_blue_levels[green_blue]) >> 7;
+	private static byte toGray8(byte[] xlevels, int pixel) {
+		final int red = (pixel & 0x00FF0000) >> 16;
+		final int green_blue = pixel & 0x0000FFFF;
+
+		final int level = (red_levels[red] + green_blue_levels[green_blue]) >> 7;
+
+		return xlevels[level];
+	}
+
+	/**
+	 * A band of rows [from, to[ (pixel offsets) : split in two halves until
+	 * small enough.
+	 */
+	private static class RgbToGray8 extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final byte[] gray;
+
+		private final Gray8Bits quantization;
+
+		private final int[] rgb;
+
+		private final int width;
+
+		private final int from;
+
+		private final int to;
+
+		RgbToGray8(byte[] gray, Gray8Bits quantization, int[] rgb, int width, int from, int to) {
+			this.gray = gray;
+			this.quantization = quantization;
+			this.rgb = rgb;
+			this.width = width;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			final int rows = (to - from) / width;
+
+			if (to - from <= CONVERSION_BAND_MIN_SIZE || rows < 2) {
+				doRgbToGray8(gray, from, quantization, rgb, from, to);
+				return;
+			}
 
-			gray[idx] = xlevels[level];
+			final int middle = from + (rows / 2) * width;
 
-			prev_rgb = pixel;
-			prev_gray = gray[idx];
+			invokeAll(new RgbToGray8(gray, quantization, rgb, width, from, middle), new RgbToGray8(gray, quantization, rgb, width, middle, to));
 		}
 	}
 